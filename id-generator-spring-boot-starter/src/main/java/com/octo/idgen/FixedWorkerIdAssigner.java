@@ -0,0 +1,36 @@
+package com.octo.idgen;
+
+/**
+ * 固定workerId（配置 idgen.worker-id），适用于单实例或由部署平台分配编号的场景
+ * 多实例使用相同workerId会生成重复ID，由使用方保证唯一
+ */
+public class FixedWorkerIdAssigner implements WorkerIdAssigner {
+
+    private final int workerId;
+
+    public FixedWorkerIdAssigner(int workerId) {
+        this.workerId = workerId;
+    }
+
+    @Override
+    public WorkerLease acquire(int maxWorkerId) {
+        if (workerId < 0 || workerId > maxWorkerId) {
+            throw new IllegalStateException("workerId超出范围[0, " + maxWorkerId + "]: " + workerId);
+        }
+        return new WorkerLease(workerId, "fixed", 0);
+    }
+
+    @Override
+    public boolean renew(WorkerLease lease, long lastTimestamp) {
+        return true;
+    }
+
+    @Override
+    public void release(WorkerLease lease, long lastTimestamp) {
+    }
+
+    @Override
+    public long getLeaseMillis() {
+        return Long.MAX_VALUE;
+    }
+}
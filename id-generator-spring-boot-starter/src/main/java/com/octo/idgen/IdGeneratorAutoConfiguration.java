@@ -0,0 +1,52 @@
+package com.octo.idgen;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+
+/**
+ * ID生成器自动配置
+ *
+ * 配置了 idgen.worker-id 时使用固定workerId，否则通过Redis租约分配；
+ * 默认在首次生成ID时才分配，应用启动不依赖Redis；idgen.eager-lease=true 时启动即分配，分配失败启动失败
+ */
+@AutoConfiguration(afterName = "org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration")
+@EnableConfigurationProperties(IdGeneratorProperties.class)
+public class IdGeneratorAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public WorkerIdAssigner workerIdAssigner(IdGeneratorProperties properties,
+                                             ObjectProvider<StringRedisTemplate> redisTemplate,
+                                             @Value("${spring.application.name:default}") String applicationName) {
+        Integer workerId = properties.getWorkerId();
+        if (workerId != null) {
+            return new FixedWorkerIdAssigner(workerId);
+        }
+        StringRedisTemplate template = redisTemplate.getIfAvailable();
+        if (template == null) {
+            throw new IllegalStateException("未配置 idgen.worker-id 时需要 StringRedisTemplate 分配workerId");
+        }
+        String namespace = StringUtils.hasText(properties.getNamespace()) ? properties.getNamespace() : applicationName;
+        return new RedisWorkerIdAssigner(template, namespace, Duration.ofSeconds(properties.getLeaseSeconds()));
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public SnowflakeIdGenerator snowflakeIdGenerator(WorkerIdAssigner workerIdAssigner,
+                                                     IdGeneratorProperties properties) {
+        SnowflakeIdGenerator generator =
+                new SnowflakeIdGenerator(workerIdAssigner, properties.getClockBackwardToleranceMillis());
+        if (properties.isEagerLease()) {
+            generator.acquireLease();
+        }
+        return generator;
+    }
+}
@@ -0,0 +1,46 @@
+package com.octo.idgen;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * ID生成器配置
+ *
+ * <pre>
+ * idgen:
+ *   namespace: seckill        # workerId命名空间，不配置时使用 spring.application.name
+ *   worker-id:                # 固定workerId（0~1023），不配置时通过Redis租约分配
+ *   lease-seconds: 30         # workerId租约时长
+ *   clock-backward-tolerance-millis: 5000
+ *   eager-lease: false        # 启动时即分配workerId
+ * </pre>
+ */
+@Data
+@ConfigurationProperties(prefix = "idgen")
+public class IdGeneratorProperties {
+
+    /**
+     * workerId命名空间
+     */
+    private String namespace;
+
+    /**
+     * 固定workerId，单机或已有外部编号（如StatefulSet序号）时使用
+     */
+    private Integer workerId;
+
+    /**
+     * workerId租约时长（秒）
+     */
+    private long leaseSeconds = 30;
+
+    /**
+     * 可容忍的时钟回拨（毫秒），回拨期间沿用逻辑时钟，超过则拒绝生成
+     */
+    private long clockBackwardToleranceMillis = 5000;
+
+    /**
+     * 启动时即分配workerId，首个请求不再同步等待Redis；分配失败时应用启动失败
+     */
+    private boolean eagerLease = false;
+}
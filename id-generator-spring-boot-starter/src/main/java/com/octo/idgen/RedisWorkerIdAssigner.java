@@ -0,0 +1,124 @@
+package com.octo.idgen;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于Redis租约的workerId分配器
+ *
+ * 1. 分配：从随机位置开始依次 SET NX PX 抢占 idgen:{namespace:workerId}:lease，抢到即为自己的workerId
+ * 2. 续约：由 {@link SnowflakeIdGenerator} 定时心跳，校验持有者后延长过期时间
+ * 3. 时间戳水位：续约/释放时把已用到的最大时间戳写入 idgen:{namespace:workerId}:ts，
+ *    下一任持有者从该水位之后开始生成，即使两台机器时钟不一致也不会生成重复ID
+ *
+ * 进程宕机未释放时，租约在 lease 时长后自动过期，workerId可被其他实例复用
+ * Redis Cluster下两个key通过hash tag落在同一slot
+ */
+@Slf4j
+public class RedisWorkerIdAssigner implements WorkerIdAssigner {
+
+    /**
+     * 时间戳水位保留时长，远大于租约时长，覆盖workerId空闲后被重新分配的间隔
+     */
+    private static final long TIMESTAMP_EXPIRE_SECONDS = TimeUnit.DAYS.toSeconds(7);
+
+    /**
+     * 续约：持有者一致时延长租约并更新时间戳水位
+     * KEYS[1] 租约key，KEYS[2] 时间戳水位key
+     * ARGV[1] 持有者标识，ARGV[2] 租约时长（毫秒），ARGV[3] 已用到的时间戳，ARGV[4] 水位过期时间（秒）
+     */
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) ~= ARGV[1] then " +
+            "    return 0 " +
+            "end " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[2]) " +
+            "redis.call('SET', KEYS[2], ARGV[3], 'EX', ARGV[4]) " +
+            "return 1",
+            Long.class);
+
+    /**
+     * 释放：持有者一致时删除租约并更新时间戳水位
+     * KEYS/ARGV 同续约，ARGV[2] 不使用
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) ~= ARGV[1] then " +
+            "    return 0 " +
+            "end " +
+            "redis.call('DEL', KEYS[1]) " +
+            "redis.call('SET', KEYS[2], ARGV[3], 'EX', ARGV[4]) " +
+            "return 1",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final String namespace;
+    private final Duration lease;
+
+    /**
+     * @param namespace 命名空间，不同业务的workerId互不影响（通常为应用名）
+     * @param lease     租约时长
+     */
+    public RedisWorkerIdAssigner(StringRedisTemplate redisTemplate, String namespace, Duration lease) {
+        this.redisTemplate = redisTemplate;
+        this.namespace = namespace;
+        this.lease = lease;
+    }
+
+    @Override
+    public WorkerLease acquire(int maxWorkerId) {
+        String token = ManagementFactory.getRuntimeMXBean().getName() + ":" + UUID.randomUUID();
+        int start = ThreadLocalRandom.current().nextInt(maxWorkerId + 1);
+        for (int i = 0; i <= maxWorkerId; i++) {
+            int workerId = (start + i) % (maxWorkerId + 1);
+            Boolean acquired = redisTemplate.opsForValue().setIfAbsent(getLeaseKey(workerId), token, lease);
+            if (Boolean.TRUE.equals(acquired)) {
+                String lastTimestamp = redisTemplate.opsForValue().get(getTimestampKey(workerId));
+                log.info("workerId分配成功: namespace={}, workerId={}, lastTimestamp={}",
+                        namespace, workerId, lastTimestamp);
+                return new WorkerLease(workerId, token, lastTimestamp != null ? Long.parseLong(lastTimestamp) : 0);
+            }
+        }
+        throw new IllegalStateException("没有空闲的workerId: namespace=" + namespace + ", max=" + maxWorkerId);
+    }
+
+    @Override
+    public boolean renew(WorkerLease workerLease, long lastTimestamp) {
+        Long result = redisTemplate.execute(RENEW_SCRIPT, getKeys(workerLease.getWorkerId()),
+                workerLease.getToken(), String.valueOf(lease.toMillis()),
+                String.valueOf(lastTimestamp), String.valueOf(TIMESTAMP_EXPIRE_SECONDS));
+        return result != null && result == 1;
+    }
+
+    @Override
+    public void release(WorkerLease workerLease, long lastTimestamp) {
+        redisTemplate.execute(RELEASE_SCRIPT, getKeys(workerLease.getWorkerId()),
+                workerLease.getToken(), String.valueOf(lease.toMillis()),
+                String.valueOf(lastTimestamp), String.valueOf(TIMESTAMP_EXPIRE_SECONDS));
+        log.info("workerId已释放: namespace={}, workerId={}", namespace, workerLease.getWorkerId());
+    }
+
+    @Override
+    public long getLeaseMillis() {
+        return lease.toMillis();
+    }
+
+    private List<String> getKeys(int workerId) {
+        return Arrays.asList(getLeaseKey(workerId), getTimestampKey(workerId));
+    }
+
+    private String getLeaseKey(int workerId) {
+        return "idgen:{" + namespace + ":" + workerId + "}:lease";
+    }
+
+    private String getTimestampKey(int workerId) {
+        return "idgen:{" + namespace + ":" + workerId + "}:ts";
+    }
+}
@@ -0,0 +1,320 @@
+package com.octo.idgen;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 雪花算法ID生成器
+ *
+ * ID结构（64位，最高位恒为0）：
+ *   41位时间戳（毫秒，相对 {@link #EPOCH}，约69年） | 10位workerId | 12位序列号
+ *
+ * 1. 趋势递增：作为InnoDB主键或唯一索引时顺序写入，不会像UUID一样造成页分裂
+ * 2. 无锁无分配：时间戳和序列号打包在一个AtomicLong里CAS推进，生成数值ID不创建任何对象
+ * 3. 时钟回拨保护：时钟回拨不超过 backwardToleranceMillis 时沿用逻辑时钟继续递增，超过则拒绝生成
+ * 4. workerId租约：首次生成时（或启动时调用 {@link #acquireLease()}）通过 {@link WorkerIdAssigner} 分配，后台心跳续约；
+ *    心跳持续失败时只在租约本地截止时间前继续使用，过期后拒绝生成，避免与接手该workerId的实例冲突
+ * 5. 紧凑字符串：定长13位Crockford Base32，字典序与数值序一致，可直接作为订单号排序
+ */
+@Slf4j
+public class SnowflakeIdGenerator implements AutoCloseable {
+
+    /**
+     * 起始时间 2024-01-01 00:00:00 UTC
+     */
+    public static final long EPOCH = 1704067200000L;
+
+    private static final int WORKER_ID_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int TIMESTAMP_SHIFT = WORKER_ID_BITS + SEQUENCE_BITS;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    public static final int MAX_WORKER_ID = (1 << WORKER_ID_BITS) - 1;
+
+    /**
+     * Crockford Base32字母表（去掉易混淆的 I L O U），字符按ASCII递增
+     */
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    /**
+     * 紧凑字符串长度：64位 / 每字符5位，向上取整
+     */
+    public static final int COMPACT_LENGTH = 13;
+
+    private final WorkerIdAssigner assigner;
+    private final long backwardToleranceMillis;
+
+    /**
+     * 逻辑时钟：(时间戳 - EPOCH) << SEQUENCE_BITS | 序列号
+     * 同一毫秒内序列号用尽时自然进位到下一毫秒
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    private final Object leaseLock = new Object();
+
+    private volatile WorkerLease lease;
+
+    /**
+     * 租约本地截止时间，超过后未续约成功则不再使用当前workerId
+     */
+    private volatile long leaseDeadline;
+
+    private ScheduledExecutorService heartbeat;
+
+    private boolean closed;
+
+    /**
+     * @param backwardToleranceMillis 可容忍的时钟回拨（毫秒）
+     */
+    public SnowflakeIdGenerator(WorkerIdAssigner assigner, long backwardToleranceMillis) {
+        this.assigner = assigner;
+        this.backwardToleranceMillis = backwardToleranceMillis;
+    }
+
+    /**
+     * 提前分配workerId，避免首次生成ID的请求承担抢占workerId的Redis往返
+     *
+     * @throws IllegalStateException 生成器已关闭
+     */
+    public void acquireLease() {
+        ensureLease(System.currentTimeMillis());
+    }
+
+    /**
+     * 生成64位ID
+     *
+     * @throws IllegalStateException 时钟回拨超过容忍范围，或workerId租约不可用
+     */
+    public long nextId() {
+        long now = System.currentTimeMillis();
+        WorkerLease current = lease;
+        if (current == null || now >= leaseDeadline) {
+            current = ensureLease(now);
+        }
+        long tick = now - EPOCH;
+        for (;;) {
+            long last = state.get();
+            long lastTick = last >>> SEQUENCE_BITS;
+            long next;
+            if (tick > lastTick) {
+                next = tick << SEQUENCE_BITS;
+            } else if (lastTick - tick <= backwardToleranceMillis) {
+                // 同一毫秒或时钟小幅回拨：沿用逻辑时钟，序列号+1
+                next = last + 1;
+            } else {
+                throw new IllegalStateException("时钟回拨" + (lastTick - tick) + "ms，超过容忍范围"
+                        + backwardToleranceMillis + "ms");
+            }
+            if (state.compareAndSet(last, next)) {
+                return ((next >>> SEQUENCE_BITS) << TIMESTAMP_SHIFT)
+                        | ((long) current.getWorkerId() << SEQUENCE_BITS)
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * 生成紧凑字符串ID（13位）
+     */
+    public String nextIdString() {
+        return nextIdString("");
+    }
+
+    /**
+     * 生成带前缀的紧凑字符串ID，如 ORD + 13位
+     */
+    public String nextIdString(String prefix) {
+        char[] chars = new char[prefix.length() + COMPACT_LENGTH];
+        prefix.getChars(0, prefix.length(), chars, 0);
+        encode(nextId(), chars, prefix.length());
+        return new String(chars);
+    }
+
+    /**
+     * 数值ID转紧凑字符串
+     */
+    public static String toCompactString(long id) {
+        char[] chars = new char[COMPACT_LENGTH];
+        encode(id, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * 紧凑字符串转数值ID
+     */
+    public static long parseCompactString(String value) {
+        if (value.length() != COMPACT_LENGTH) {
+            throw new IllegalArgumentException("ID长度应为" + COMPACT_LENGTH + ": " + value);
+        }
+        long id = 0;
+        for (int i = 0; i < COMPACT_LENGTH; i++) {
+            int digit = decode(value.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("非法字符'" + value.charAt(i) + "': " + value);
+            }
+            id = (id << 5) | digit;
+        }
+        return id;
+    }
+
+    /**
+     * 从ID中解析生成时间（毫秒时间戳）
+     */
+    public static long extractTimestamp(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + EPOCH;
+    }
+
+    /**
+     * 从ID中解析workerId
+     */
+    public static int extractWorkerId(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_WORKER_ID);
+    }
+
+    /**
+     * 释放workerId租约
+     */
+    @Override
+    public void close() {
+        synchronized (leaseLock) {
+            closed = true;
+            if (heartbeat != null) {
+                heartbeat.shutdownNow();
+            }
+            WorkerLease current = lease;
+            lease = null;
+            if (current != null) {
+                try {
+                    assigner.release(current, getLastTimestamp());
+                } catch (Exception e) {
+                    log.warn("workerId释放失败，等待租约自动过期: workerId={}, reason={}",
+                            current.getWorkerId(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 首次使用时分配workerId；租约本地已过期时先尝试续约，续约失败重新分配
+     */
+    private WorkerLease ensureLease(long now) {
+        synchronized (leaseLock) {
+            if (closed) {
+                throw new IllegalStateException("ID生成器已关闭");
+            }
+            if (lease == null || now >= leaseDeadline) {
+                refreshLease();
+            }
+            return lease;
+        }
+    }
+
+    /**
+     * 心跳续约，Redis短暂不可用时忽略，租约本地截止时间前继续使用
+     */
+    private void heartbeat() {
+        synchronized (leaseLock) {
+            if (closed || lease == null) {
+                return;
+            }
+            try {
+                refreshLease();
+            } catch (Exception e) {
+                log.warn("workerId续约失败，租约到期前继续使用: workerId={}, reason={}",
+                        lease != null ? lease.getWorkerId() : null, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 续约当前租约，租约已丢失或尚未分配时重新分配（调用方持有leaseLock）
+     */
+    private void refreshLease() {
+        long start = System.currentTimeMillis();
+        WorkerLease current = lease;
+        if (current != null) {
+            if (assigner.renew(current, getLastTimestamp())) {
+                leaseDeadline = getDeadline(start);
+                return;
+            }
+            log.warn("workerId租约已丢失，重新分配: workerId={}", current.getWorkerId());
+            lease = null;
+        }
+
+        WorkerLease acquired = assigner.acquire(MAX_WORKER_ID);
+        // 从上一任持有者的时间戳水位之后开始，避免两台机器时钟不一致导致重复
+        advanceTo(acquired.getLastTimestamp());
+        if (acquired.getLastTimestamp() - start > backwardToleranceMillis) {
+            log.warn("本机时钟落后于workerId上一任持有者{}ms，追上之前无法生成ID: workerId={}",
+                    acquired.getLastTimestamp() - start, acquired.getWorkerId());
+        }
+        leaseDeadline = getDeadline(start);
+        lease = acquired;
+        startHeartbeat();
+    }
+
+    /**
+     * 逻辑时钟推进到指定时间戳之后
+     */
+    private void advanceTo(long timestamp) {
+        long target = ((timestamp - EPOCH) << SEQUENCE_BITS) | SEQUENCE_MASK;
+        long last;
+        while ((last = state.get()) < target) {
+            if (state.compareAndSet(last, target)) {
+                return;
+            }
+        }
+    }
+
+    private long getLastTimestamp() {
+        return (state.get() >>> SEQUENCE_BITS) + EPOCH;
+    }
+
+    /**
+     * 本地截止时间比Redis中的过期时间提前 1/5 个租约，留出网络延迟和时钟误差的余量
+     */
+    private long getDeadline(long renewStart) {
+        long leaseMillis = assigner.getLeaseMillis();
+        if (leaseMillis == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        return renewStart + leaseMillis - leaseMillis / 5;
+    }
+
+    /**
+     * 每 1/5 个租约心跳一次，截止时间前至少有4次续约机会
+     */
+    private void startHeartbeat() {
+        long leaseMillis = assigner.getLeaseMillis();
+        if (heartbeat != null || leaseMillis == Long.MAX_VALUE) {
+            return;
+        }
+        long interval = leaseMillis / 5;
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snowflake-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::heartbeat, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private static void encode(long id, char[] chars, int offset) {
+        for (int i = offset + COMPACT_LENGTH - 1; i >= offset; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+    }
+
+    private static int decode(char c) {
+        for (int i = 0; i < ALPHABET.length; i++) {
+            if (ALPHABET[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
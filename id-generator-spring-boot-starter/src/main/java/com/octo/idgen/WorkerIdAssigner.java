@@ -0,0 +1,32 @@
+package com.octo.idgen;
+
+/**
+ * workerId分配器
+ */
+public interface WorkerIdAssigner {
+
+    /**
+     * 分配一个空闲的workerId
+     *
+     * @param maxWorkerId 最大workerId（含）
+     * @throws IllegalStateException 没有空闲的workerId
+     */
+    WorkerLease acquire(int maxWorkerId);
+
+    /**
+     * 续约，并记录当前已用到的时间戳
+     *
+     * @return 租约仍归自己所有返回true；已过期或被他人占用返回false
+     */
+    boolean renew(WorkerLease lease, long lastTimestamp);
+
+    /**
+     * 释放租约
+     */
+    void release(WorkerLease lease, long lastTimestamp);
+
+    /**
+     * 租约时长（毫秒），不会过期的分配器返回 {@link Long#MAX_VALUE}
+     */
+    long getLeaseMillis();
+}
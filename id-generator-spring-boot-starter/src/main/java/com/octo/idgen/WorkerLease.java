@@ -0,0 +1,32 @@
+package com.octo.idgen;
+
+import lombok.Getter;
+
+/**
+ * workerId租约
+ */
+@Getter
+public class WorkerLease {
+
+    /**
+     * 分配到的workerId
+     */
+    private final int workerId;
+
+    /**
+     * 持有者标识，续约和释放时校验，防止误续别人的租约
+     */
+    private final String token;
+
+    /**
+     * 该workerId上一任持有者用到的最大时间戳（毫秒），没有记录时为0
+     * 新持有者生成的ID时间戳必须大于它，避免节点间时钟不一致导致ID重复
+     */
+    private final long lastTimestamp;
+
+    public WorkerLease(int workerId, String token, long lastTimestamp) {
+        this.workerId = workerId;
+        this.token = token;
+        this.lastTimestamp = lastTimestamp;
+    }
+}
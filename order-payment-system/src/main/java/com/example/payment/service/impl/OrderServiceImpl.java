@@ -13,6 +13,7 @@ import com.example.payment.mapper.ProductMapper;
 import com.example.payment.mq.OrderMessageProducer;
 import com.example.payment.service.OrderService;
 import com.example.payment.service.StockService;
+import com.octo.idgen.SnowflakeIdGenerator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -22,7 +23,6 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -47,6 +47,9 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private OrderMessageProducer orderMessageProducer;
 
+    @Autowired
+    private SnowflakeIdGenerator idGenerator;
+
     @Value("${order.timeout-minutes:30}")
     private Integer orderTimeoutMinutes;
 
@@ -289,12 +292,10 @@ public class OrderServiceImpl implements OrderService {
 
     /**
      * 生成订单号
-     * 格式：前缀 + 日期 + 6位序列号
+     * 格式：前缀 + 13位雪花ID紧凑字符串，趋势递增
      */
     private String generateOrderNo() {
-        String date = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String random = IdUtil.fastSimpleUUID().substring(0, 6).toUpperCase();
-        return orderPrefix + date + random;
+        return idGenerator.nextIdString(orderPrefix);
     }
 }
 
@@ -15,6 +15,7 @@ import com.example.payment.mapper.PaymentOrderMapper;
 import com.example.payment.mq.PaymentMessageProducer;
 import com.example.payment.service.OrderService;
 import com.example.payment.service.PaymentService;
+import com.octo.idgen.SnowflakeIdGenerator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -23,7 +24,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -46,6 +46,9 @@ public class PaymentServiceImpl implements PaymentService {
     @Autowired
     private PaymentMessageProducer paymentMessageProducer;
 
+    @Autowired
+    private SnowflakeIdGenerator idGenerator;
+
     @Value("${payment.timeout-minutes:30}")
     private Integer paymentTimeoutMinutes;
 
@@ -328,11 +331,10 @@ public class PaymentServiceImpl implements PaymentService {
 
     /**
      * 生成支付单号
+     * 格式：前缀 + 13位雪花ID紧凑字符串，趋势递增
      */
     private String generatePaymentNo() {
-        String date = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String random = IdUtil.fastSimpleUUID().substring(0, 6).toUpperCase();
-        return paymentPrefix + date + random;
+        return idGenerator.nextIdString(paymentPrefix);
     }
 }
 
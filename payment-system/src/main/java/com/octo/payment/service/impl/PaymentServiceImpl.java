@@ -1,5 +1,6 @@
 package com.octo.payment.service.impl;
 
+import com.octo.idgen.SnowflakeIdGenerator;
 import com.octo.payment.dto.PaymentRequest;
 import com.octo.payment.dto.PaymentResponse;
 import com.octo.payment.dto.RefundRequest;
@@ -13,7 +14,6 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -32,6 +32,9 @@ public class PaymentServiceImpl implements PaymentService {
     @Autowired
     private AlipayService alipayService;
 
+    @Autowired
+    private SnowflakeIdGenerator idGenerator;
+
     private static final String PAYMENT_ORDER_KEY_PREFIX = "payment:order:";
 
     @Override
@@ -224,8 +227,9 @@ public class PaymentServiceImpl implements PaymentService {
 
     /**
      * 生成订单号
+     * 格式：PAY + 13位雪花ID紧凑字符串，趋势递增
      */
     private String generateOrderId() {
-        return "PAY" + System.currentTimeMillis() + UUID.randomUUID().toString().substring(0, 6).toUpperCase();
+        return idGenerator.nextIdString("PAY");
     }
 }
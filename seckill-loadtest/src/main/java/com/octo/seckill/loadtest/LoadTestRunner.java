@@ -0,0 +1,259 @@
+package com.octo.seckill.loadtest;
+
+import com.alibaba.fastjson2.JSON;
+import com.octo.seckill.loadtest.mq.InMemoryBroker;
+import com.octo.seckill.service.StockCacheService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 秒杀压测执行器
+ *
+ * 1. 准备数据：创建一个进行中的活动（库存 loadtest.stock），预热库存到Redis
+ * 2. 发起抢购：concurrency 个线程向 /api/seckill/do 发送 buyers × attempts-per-buyer 个请求，
+ *    用户ID依次为 1 ~ buyers，每轮请求顺序固定，相同参数多次运行结果可对比
+ * 3. 等待消费：统计从最后一个请求返回到所有消息被消费完的耗时
+ * 4. 校验结果：订单数、数据库剩余库存、Redis剩余库存三方核对，检查超卖和重复下单
+ *
+ * 报告：吞吐量、p50/p99/p999延迟、各返回码数量、消费耗时、超卖校验
+ */
+@Slf4j
+@Component
+@Profile("loadtest")
+@RequiredArgsConstructor
+public class LoadTestRunner implements ApplicationRunner, ExitCodeGenerator {
+
+    private static final int CODE_SUCCESS = 200;
+    private static final int CODE_ERROR = -1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StockCacheService stockCacheService;
+    private final InMemoryBroker broker;
+    private final Environment environment;
+
+    @Value("${loadtest.stock}")
+    private int stock;
+
+    @Value("${loadtest.buyers}")
+    private int buyers;
+
+    @Value("${loadtest.attempts-per-buyer}")
+    private int attemptsPerBuyer;
+
+    @Value("${loadtest.concurrency}")
+    private int concurrency;
+
+    @Value("${loadtest.drain-timeout-seconds}")
+    private long drainTimeoutSeconds;
+
+    private int exitCode;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        long activityId = createActivity();
+        stockCacheService.preloadUpcomingStock();
+        int port = environment.getRequiredProperty("local.server.port", Integer.class);
+
+        log.info("========== 开始压测: activityId={}, stock={}, buyers={}, attemptsPerBuyer={}, concurrency={} ==========",
+                activityId, stock, buyers, attemptsPerBuyer, concurrency);
+
+        int total = buyers * attemptsPerBuyer;
+        long[] latencies = new long[total];
+        Map<Integer, LongAdder> codes = new ConcurrentHashMap<>();
+        long elapsedNanos = fire(port, activityId, latencies, codes);
+
+        long accepted = codes.getOrDefault(CODE_SUCCESS, new LongAdder()).sum();
+        long drainStart = System.nanoTime();
+        boolean drained = awaitDrain(accepted);
+        long drainMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - drainStart);
+
+        report(activityId, latencies, codes, elapsedNanos, accepted, drained, drainMillis);
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * 创建一个已开始、1小时后结束的活动
+     */
+    private long createActivity() {
+        jdbcTemplate.update("INSERT INTO t_product (name, description, price, stock) VALUES (?, ?, ?, ?)",
+                "压测商品", "loadtest", 9999, stock);
+        Long productId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM t_product", Long.class);
+
+        LocalDateTime now = LocalDateTime.now();
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO t_seckill_activity (product_id, seckill_price, total_stock, available_stock, " +
+                    "start_time, end_time, status) VALUES (?, ?, ?, ?, ?, ?, 1)",
+                    Statement.RETURN_GENERATED_KEYS);
+            ps.setLong(1, productId);
+            ps.setBigDecimal(2, BigDecimal.valueOf(6999));
+            ps.setInt(3, stock);
+            ps.setInt(4, stock);
+            ps.setTimestamp(5, Timestamp.valueOf(now.minusMinutes(1)));
+            ps.setTimestamp(6, Timestamp.valueOf(now.plusHours(1)));
+            return ps;
+        }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+
+    /**
+     * 并发发送秒杀请求
+     *
+     * @return 全部请求的总耗时（纳秒）
+     */
+    private long fire(int port, long activityId, long[] latencies, Map<Integer, LongAdder> codes)
+            throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        URI uri = URI.create("http://localhost:" + port + "/api/seckill/do");
+
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(concurrency);
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        for (int t = 0; t < concurrency; t++) {
+            pool.execute(() -> {
+                try {
+                    int i;
+                    while ((i = next.getAndIncrement()) < latencies.length) {
+                        long userId = i % buyers + 1;
+                        long begin = System.nanoTime();
+                        int code = send(client, uri, userId, activityId);
+                        latencies[i] = System.nanoTime() - begin;
+                        codes.computeIfAbsent(code, k -> new LongAdder()).increment();
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        return elapsed;
+    }
+
+    private int send(HttpClient client, URI uri, long userId, long activityId) {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"userId\":" + userId + ",\"activityId\":" + activityId + "}"))
+                .build();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            Integer code = JSON.parseObject(response.body()).getInteger("code");
+            return code != null ? code : response.statusCode();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CODE_ERROR;
+        } catch (Exception e) {
+            return CODE_ERROR;
+        }
+    }
+
+    /**
+     * 等待所有准入成功的消息发送到队列并被消费完
+     */
+    private boolean awaitDrain(long accepted) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(drainTimeoutSeconds);
+        while (broker.getPublished() < accepted || !broker.isDrained()) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private void report(long activityId, long[] latencies, Map<Integer, LongAdder> codes, long elapsedNanos,
+                        long accepted, boolean drained, long drainMillis) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        double seconds = elapsedNanos / 1e9;
+
+        Integer available = jdbcTemplate.queryForObject(
+                "SELECT available_stock FROM t_seckill_activity WHERE id = ?", Integer.class, activityId);
+        Long orders = jdbcTemplate.queryForObject(
+                "SELECT COUNT(1) FROM t_seckill_order WHERE activity_id = ?", Long.class, activityId);
+        Long distinctUsers = jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT user_id) FROM t_seckill_order WHERE activity_id = ?", Long.class, activityId);
+        int redisStock = stockCacheService.getStock(activityId);
+
+        boolean oversold = orders > stock || available < 0 || redisStock < 0;
+        boolean duplicated = distinctUsers < orders;
+        boolean consistent = stock - available == orders && redisStock == available;
+
+        log.info("========== 压测报告 ==========");
+        log.info("请求总数: {}, 耗时: {} ms, 吞吐量: {} req/s",
+                sorted.length, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), String.format("%.1f", sorted.length / seconds));
+        log.info("延迟(ms): p50={}, p99={}, p999={}, max={}",
+                millis(percentile(sorted, 0.5)), millis(percentile(sorted, 0.99)),
+                millis(percentile(sorted, 0.999)), millis(sorted.length > 0 ? sorted[sorted.length - 1] : 0));
+        log.info("返回码分布: {}", new TreeMap<>(codes));
+        log.info("准入成功: {}, 已入队: {}, ACK: {}, NACK: {}",
+                accepted, broker.getPublished(), broker.getAcked(), broker.getNacked());
+        log.info("消费耗时: {} ms{}", drainMillis, drained ? "" : "（超时，仍有消息未消费完）");
+        log.info("订单数: {}, 下单用户数: {}, 库存: {}, 数据库剩余: {}, Redis剩余: {}",
+                orders, distinctUsers, stock, available, redisStock);
+        log.info("超卖: {}, 重复下单: {}, 三方库存一致: {}",
+                oversold ? "是" : "否", duplicated ? "是" : "否", consistent ? "是" : "否");
+
+        if (oversold || duplicated || !drained) {
+            log.error("========== 压测未通过 ==========");
+            exitCode = 1;
+        } else {
+            log.info("========== 压测通过 ==========");
+        }
+    }
+
+    private long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private String millis(long nanos) {
+        return String.format("%.2f", nanos / 1e6);
+    }
+}
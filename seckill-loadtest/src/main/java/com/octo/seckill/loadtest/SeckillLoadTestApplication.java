@@ -0,0 +1,49 @@
+package com.octo.seckill.loadtest;
+
+import com.octo.seckill.SeckillApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Map;
+
+/**
+ * 秒杀压测启动类
+ *
+ * 以 loadtest 环境启动完整的秒杀系统，外部依赖全部替换为本地替身：
+ * 1. Redis    - 内嵌 redis-server（真实Redis，Lua脚本、位图、Pub/Sub行为与线上一致）
+ * 2. RabbitMQ - 内存队列 {@link com.octo.seckill.loadtest.mq.InMemoryBroker}，直接投递给 SeckillMessageConsumer
+ * 3. MySQL    - H2 MySQL模式内存库
+ *
+ * 启动完成后由 {@link LoadTestRunner} 发起并发抢购，输出报告后退出；发现超卖时退出码为1
+ *
+ * @author octo
+ */
+public class SeckillLoadTestApplication {
+
+    public static void main(String[] args) throws IOException {
+        int redisPort = findFreePort();
+        RedisServer redisServer = new RedisServer(redisPort);
+        redisServer.start();
+
+        int exitCode;
+        try {
+            SpringApplication application = new SpringApplication(SeckillApplication.class);
+            application.setAdditionalProfiles("loadtest");
+            application.setDefaultProperties(Map.of("spring.data.redis.port", redisPort));
+            ConfigurableApplicationContext context = application.run(args);
+            exitCode = SpringApplication.exit(context);
+        } finally {
+            redisServer.stop();
+        }
+        System.exit(exitCode);
+    }
+
+    private static int findFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.octo.seckill.loadtest.config;
+
+import com.octo.seckill.loadtest.mq.InMemoryBroker;
+import com.octo.seckill.loadtest.mq.InMemoryRabbitTemplate;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * 压测替身配置
+ *
+ * ConnectionFactory 仍由Spring Boot自动配置（懒连接），但不会真正连接RabbitMQ：
+ * 1. 发送走 {@link InMemoryRabbitTemplate}（@Primary，覆盖 RabbitMQConfig 中的 rabbitTemplate 注入）
+ * 2. 默认监听容器工厂同名覆盖Spring Boot自动配置，创建的容器不启动，消息由 {@link InMemoryBroker} 直接投递
+ */
+@Configuration
+@Profile("loadtest")
+public class LoadTestStandInConfig {
+
+    @Bean
+    @Primary
+    public RabbitTemplate inMemoryRabbitTemplate(ConnectionFactory connectionFactory, InMemoryBroker broker) {
+        return new InMemoryRabbitTemplate(connectionFactory, broker);
+    }
+
+    /**
+     * 与Spring Boot默认工厂同名，@RabbitListener 的监听容器都由它创建
+     * autoStartup 由注解上的SpEL决定、无法通过配置关闭，这里直接让容器的 start 不做任何事
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory() {
+            @Override
+            protected SimpleMessageListenerContainer createContainerInstance() {
+                return new SimpleMessageListenerContainer() {
+                    @Override
+                    public void start() {
+                        // 不连接Broker
+                    }
+                };
+            }
+        };
+        factory.setConnectionFactory(connectionFactory);
+        return factory;
+    }
+}
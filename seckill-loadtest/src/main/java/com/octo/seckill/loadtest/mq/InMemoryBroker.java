@@ -0,0 +1,158 @@
+package com.octo.seckill.loadtest.mq;
+
+import com.octo.seckill.dto.SeckillMessage;
+import com.octo.seckill.mq.SeckillMessageConsumer;
+import com.rabbitmq.client.Channel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内存消息队列
+ *
+ * 替代RabbitMQ：{@link InMemoryRabbitTemplate} 发送的消息进入内存队列，
+ * 由 consumers 个线程逐条调用 {@link SeckillMessageConsumer#handleSeckillMessage}，
+ * 等价于 prefetch=1、手动ACK 的队列消费者；ACK/NACK 通过 Channel 替身计数
+ */
+@Slf4j
+@Component
+@Profile("loadtest")
+@RequiredArgsConstructor
+public class InMemoryBroker {
+
+    private final SeckillMessageConsumer consumer;
+
+    @Value("${loadtest.consumers}")
+    private int consumers;
+
+    private final BlockingQueue<SeckillMessage> queue = new LinkedBlockingQueue<>();
+
+    private final AtomicLong deliveryTag = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong acked = new AtomicLong();
+    private final AtomicLong nacked = new AtomicLong();
+
+    /**
+     * 已投递但尚未处理完的消息数（排队中 + 处理中）
+     */
+    private final AtomicLong pending = new AtomicLong();
+
+    private ExecutorService executor;
+
+    private volatile boolean running = true;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(consumers, runnable -> {
+            Thread thread = new Thread(runnable, "in-memory-consumer-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Channel channel = createChannel();
+        for (int i = 0; i < consumers; i++) {
+            executor.execute(() -> consume(channel));
+        }
+        log.info("内存消息队列已启动: consumers={}", consumers);
+    }
+
+    /**
+     * 投递消息
+     */
+    public void publish(SeckillMessage message) {
+        published.incrementAndGet();
+        pending.incrementAndGet();
+        queue.add(message);
+    }
+
+    /**
+     * 所有已投递的消息都已处理完
+     */
+    public boolean isDrained() {
+        return pending.get() == 0;
+    }
+
+    public long getPublished() {
+        return published.get();
+    }
+
+    public long getAcked() {
+        return acked.get();
+    }
+
+    public long getNacked() {
+        return nacked.get();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        executor.shutdownNow();
+    }
+
+    private void consume(Channel channel) {
+        while (running) {
+            try {
+                SeckillMessage message = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (message == null) {
+                    continue;
+                }
+                try {
+                    consumer.handleSeckillMessage(message, channel, deliveryTag.incrementAndGet());
+                } catch (Exception e) {
+                    log.error("内存队列消费异常: orderNo={}", message.getOrderNo(), e);
+                    nacked.incrementAndGet();
+                } finally {
+                    pending.decrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Channel替身：只统计 basicAck / basicNack / basicReject，其余方法返回默认值
+     */
+    private Channel createChannel() {
+        return (Channel) Proxy.newProxyInstance(Channel.class.getClassLoader(), new Class<?>[]{Channel.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "basicAck" -> acked.incrementAndGet();
+                        case "basicNack", "basicReject" -> nacked.incrementAndGet();
+                        case "toString" -> {
+                            return "InMemoryChannel";
+                        }
+                        case "hashCode" -> {
+                            return System.identityHashCode(proxy);
+                        }
+                        case "equals" -> {
+                            return proxy == args[0];
+                        }
+                        default -> {
+                        }
+                    }
+                    Class<?> returnType = method.getReturnType();
+                    if (returnType.isPrimitive() && returnType != void.class) {
+                        // 基本类型返回对应的默认值（0 / false）
+                        return Array.get(Array.newInstance(returnType, 1), 0);
+                    }
+                    return null;
+                });
+    }
+}
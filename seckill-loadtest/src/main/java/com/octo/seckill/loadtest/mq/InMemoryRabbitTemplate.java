@@ -0,0 +1,35 @@
+package com.octo.seckill.loadtest.mq;
+
+import com.octo.seckill.dto.SeckillMessage;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+/**
+ * 内存版RabbitTemplate
+ *
+ * 秒杀消息直接进入 {@link InMemoryBroker}，并立即完成发布确认，
+ * SeckillMessageProducer 的异步批量发送和确认逻辑照常执行，只是不经过网络
+ */
+public class InMemoryRabbitTemplate extends RabbitTemplate {
+
+    private final InMemoryBroker broker;
+
+    public InMemoryRabbitTemplate(ConnectionFactory connectionFactory, InMemoryBroker broker) {
+        super(connectionFactory);
+        this.broker = broker;
+    }
+
+    @Override
+    public void convertAndSend(String exchange, String routingKey, Object object, CorrelationData correlationData) {
+        broker.publish((SeckillMessage) object);
+        if (correlationData != null) {
+            correlationData.getFuture().complete(new CorrelationData.Confirm(true, null));
+        }
+    }
+
+    @Override
+    public void convertAndSend(String exchange, String routingKey, Object object) {
+        convertAndSend(exchange, routingKey, object, (CorrelationData) null);
+    }
+}
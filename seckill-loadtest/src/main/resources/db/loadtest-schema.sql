@@ -0,0 +1,41 @@
+-- 压测用H2建表脚本（MySQL模式），字段与 seckill-system/src/main/resources/db/schema.sql 保持一致
+
+CREATE TABLE IF NOT EXISTS t_product (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    name VARCHAR(200) NOT NULL,
+    description TEXT,
+    price DECIMAL(10, 2) NOT NULL,
+    stock INT NOT NULL DEFAULT 0,
+    create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+    update_time DATETIME DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS t_seckill_activity (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    product_id BIGINT NOT NULL,
+    seckill_price DECIMAL(10, 2) NOT NULL,
+    total_stock INT NOT NULL,
+    available_stock INT NOT NULL,
+    start_time DATETIME NOT NULL,
+    end_time DATETIME NOT NULL,
+    status TINYINT DEFAULT 0,
+    create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+    update_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+    version INT DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS t_seckill_order (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    order_no VARCHAR(64) NOT NULL UNIQUE,
+    user_id BIGINT NOT NULL,
+    activity_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    seckill_price DECIMAL(10, 2) NOT NULL,
+    status TINYINT DEFAULT 0,
+    create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+    pay_time DATETIME,
+    update_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT idx_user_activity UNIQUE (user_id, activity_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_user_id ON t_seckill_order (user_id);
@@ -33,5 +33,17 @@ public @interface RateLimit {
      * 默认以方法名作为key
      */
     String key() default "";
+
+    /**
+     * 是否启用集群限流
+     * true：令牌桶存放在Redis，permitsPerSecond为整个集群的总配额，Redis不可用时降级为单机限流
+     * false：单机Guava限流，permitsPerSecond为单节点配额
+     */
+    boolean distributed() default false;
+
+    /**
+     * 集群限流时每次从Redis预取的令牌数
+     */
+    int batchSize() default 10;
 }
 
@@ -3,12 +3,16 @@ package com.octo.seckill.aspect;
 import com.google.common.util.concurrent.RateLimiter;
 import com.octo.seckill.annotation.RateLimit;
 import com.octo.seckill.common.Result;
+import com.octo.seckill.service.DistributedRateLimiter;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
 
 import java.lang.reflect.Method;
 import java.util.Map;
@@ -27,12 +31,25 @@ import java.util.concurrent.TimeUnit;
  * 2. 为什么用tryAcquire而不是acquire？
  *    - acquire会阻塞等待，影响响应时间
  *    - tryAcquire立即返回，超时则快速失败
+ * 3. 多节点部署怎么限流？
+ *    - distributed=true时走 {@link DistributedRateLimiter}，Redis全局令牌桶 + 本地批量预取
+ *    - 集群令牌取不到时直接拒绝，不等待timeout
+ *    - Redis异常时降级为本地Guava限流
+ * 4. 响应式接口（返回Mono）怎么限流？
+ *    - 集群令牌通过响应式命令异步预取，不阻塞调用线程
+ *    - 降级为单机限流时不等待timeout，取不到令牌立即拒绝
+ *
+ * seckill.rate-limit.enabled=false 时不注册切面（压测时排除限流对吞吐量的影响）
  */
 @Slf4j
 @Aspect
 @Component
+@ConditionalOnProperty(prefix = "seckill.rate-limit", name = "enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
 public class RateLimitAspect {
 
+    private final DistributedRateLimiter distributedRateLimiter;
+
     /**
      * 限流器缓存 - 每个接口一个限流器
      */
@@ -49,12 +66,14 @@ public class RateLimitAspect {
                 method.getDeclaringClass().getName() + "." + method.getName() : 
                 rateLimit.key();
 
-        // 获取或创建限流器
-        RateLimiter rateLimiter = rateLimiterCache.computeIfAbsent(key, 
-                k -> RateLimiter.create(rateLimit.permitsPerSecond()));
+        if (Mono.class.isAssignableFrom(method.getReturnType())) {
+            return aroundReactive(point, key, rateLimit);
+        }
 
         // 尝试获取令牌
-        boolean acquired = rateLimiter.tryAcquire(rateLimit.timeout(), TimeUnit.MILLISECONDS);
+        boolean acquired = rateLimit.distributed() ?
+                tryAcquireDistributed(key, rateLimit) :
+                tryAcquireLocal(key, rateLimit);
 
         if (!acquired) {
             log.warn("接口限流触发: key={}, permitsPerSecond={}", key, rateLimit.permitsPerSecond());
@@ -63,5 +82,57 @@ public class RateLimitAspect {
 
         return point.proceed();
     }
+
+    /**
+     * 响应式接口限流：拿到令牌后才订阅接口返回的Mono，被限流时直接返回限流结果
+     */
+    @SuppressWarnings("unchecked")
+    private Mono<Object> aroundReactive(ProceedingJoinPoint point, String key, RateLimit rateLimit) {
+        Mono<Boolean> acquired = rateLimit.distributed() ?
+                distributedRateLimiter.tryAcquireReactive(key, rateLimit.permitsPerSecond(), rateLimit.batchSize())
+                        .onErrorResume(e -> {
+                            log.warn("集群限流不可用，降级为单机限流: key={}, reason={}", key, e.getMessage());
+                            return Mono.just(getLocalRateLimiter(key, rateLimit).tryAcquire());
+                        }) :
+                Mono.fromSupplier(() -> getLocalRateLimiter(key, rateLimit).tryAcquire());
+
+        return acquired.flatMap(ok -> {
+            if (!ok) {
+                log.warn("接口限流触发: key={}, permitsPerSecond={}", key, rateLimit.permitsPerSecond());
+                return Mono.just(Result.rateLimited());
+            }
+            try {
+                return (Mono<Object>) point.proceed();
+            } catch (Throwable e) {
+                return Mono.error(e);
+            }
+        });
+    }
+
+    /**
+     * 集群限流，Redis异常时降级为单机限流
+     */
+    private boolean tryAcquireDistributed(String key, RateLimit rateLimit) {
+        try {
+            return distributedRateLimiter.tryAcquire(key, rateLimit.permitsPerSecond(), rateLimit.batchSize());
+        } catch (Exception e) {
+            log.warn("集群限流不可用，降级为单机限流: key={}, reason={}", key, e.getMessage());
+            return tryAcquireLocal(key, rateLimit);
+        }
+    }
+
+    /**
+     * 单机限流
+     */
+    private boolean tryAcquireLocal(String key, RateLimit rateLimit) {
+        return getLocalRateLimiter(key, rateLimit).tryAcquire(rateLimit.timeout(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 获取或创建限流器
+     */
+    private RateLimiter getLocalRateLimiter(String key, RateLimit rateLimit) {
+        return rateLimiterCache.computeIfAbsent(key, k -> RateLimiter.create(rateLimit.permitsPerSecond()));
+    }
 }
 
@@ -59,6 +59,10 @@ public class Result<T> {
         return new Result<>(4005, "访问过于频繁，请稍后再试", null);
     }
 
+    public static <T> Result<T> notSelected() {
+        return new Result<>(4006, "很遗憾，本次秒杀名额已发放完毕", null);
+    }
+
     public static <T> Result<T> systemBusy() {
         return new Result<>(5001, "系统繁忙，请稍后再试", null);
     }
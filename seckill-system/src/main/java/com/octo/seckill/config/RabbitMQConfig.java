@@ -1,13 +1,23 @@
 package com.octo.seckill.config;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.DirectRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.DirectRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * RabbitMQ配置
  * 
@@ -23,6 +33,7 @@ import org.springframework.context.annotation.Configuration;
  *   2. 消息持久化（durable queue）
  *   3. 消费者手动ACK
  */
+@Slf4j
 @Configuration
 public class RabbitMQConfig {
 
@@ -35,6 +46,10 @@ public class RabbitMQConfig {
     public static final String SECKILL_DLX_QUEUE = "seckill.dlx.queue";
     public static final String SECKILL_DLX_ROUTING_KEY = "seckill.dlx";
 
+    // 分区队列 - 一致性哈希交换机（需启用 rabbitmq_consistent_hash_exchange 插件）
+    public static final String SECKILL_PARTITION_EXCHANGE = "seckill.partition.exchange";
+    public static final String SECKILL_PARTITION_QUEUE_PREFIX = "seckill.order.partition.";
+
     /**
      * JSON消息转换器
      */
@@ -55,19 +70,110 @@ public class RabbitMQConfig {
         // 消息发送确认回调
         template.setConfirmCallback((correlationData, ack, cause) -> {
             if (!ack) {
-                // 发送失败，需要重试或记录日志
-                System.err.println("消息发送失败: " + cause);
+                // 发送失败，由发送方根据CorrelationData落盘重发，这里只记录日志
+                log.warn("消息发送失败: {}", cause);
             }
         });
         
+        // 无法路由的消息退回给生产者，CorrelationData.getReturned() 据此判定发送失败
+        template.setMandatory(true);
+
         // 消息返回回调（无法路由时）
         template.setReturnsCallback(returned -> {
-            System.err.println("消息无法路由: " + returned.getMessage());
+            log.warn("消息无法路由: exchange={}, routingKey={}, replyText={}",
+                    returned.getExchange(), returned.getRoutingKey(), returned.getReplyText());
         });
         
         return template;
     }
 
+    /**
+     * 批量消费监听容器工厂
+     *
+     * 攒够 batch-size 条消息，或 receive-timeout 毫秒内没有新消息时，整批交给监听器
+     * 其余配置（手动ACK、消息转换器等）沿用 spring.rabbitmq.listener.simple
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory batchListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${seckill.consumer.batch.size}") int batchSize,
+            @Value("${seckill.consumer.batch.receive-timeout}") long receiveTimeout) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(receiveTimeout);
+        // 预取数量不小于批大小，否则永远攒不满一批
+        factory.setPrefetchCount(batchSize);
+        return factory;
+    }
+
+    /**
+     * 分区消费监听容器工厂
+     *
+     * DirectMessageListenerContainer 每个队列一个消费者、一个Channel，
+     * 同一分区内的消息串行处理（保持同一活动的顺序），不同分区之间并行
+     * 注意：这里的单消费者只限本实例，多实例部署时跨节点的唯一性由队列的 single-active-consumer 保证
+     */
+    @Bean
+    public DirectRabbitListenerContainerFactory partitionListenerContainerFactory(
+            DirectRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory) {
+        DirectRabbitListenerContainerFactory factory = new DirectRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setConsumersPerQueue(1);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setPrefetchCount(1);
+        return factory;
+    }
+
+    // ================== 秒杀订单分区队列 ==================
+
+    /**
+     * 分区队列名称：seckill.order.partition.0 ~ N-1
+     */
+    @Bean
+    public String[] seckillPartitionQueueNames(@Value("${seckill.mq.partition.count}") int partitionCount) {
+        String[] names = new String[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            names[i] = SECKILL_PARTITION_QUEUE_PREFIX + i;
+        }
+        return names;
+    }
+
+    /**
+     * 一致性哈希交换机 + N个分区队列
+     *
+     * 绑定键为权重（各分区权重相同），交换机按消息routingKey（活动ID）哈希到分区，
+     * 同一活动的消息总是进入同一个分区
+     *
+     * 分区队列声明为 single-active-consumer（x-single-active-consumer=true）：
+     * N个节点都会订阅每个分区，但Broker同一时刻只向其中一个消费者投递，其余消费者待命，
+     * 活跃消费者断开后自动切换，因此集群内每个分区只有一个消费者在处理，
+     * 同一活动的消息保持顺序，也不会有多个节点争抢同一行库存的行锁
+     *
+     * 队列参数不能修改，已存在的旧分区队列（未带该参数）需先排空并删除，否则声明时报 PRECONDITION_FAILED
+     */
+    @Bean
+    @ConditionalOnProperty(name = "seckill.mq.partition.enabled", havingValue = "true")
+    public Declarables seckillPartitionDeclarables(String[] seckillPartitionQueueNames) {
+        List<Declarable> declarables = new ArrayList<>();
+        CustomExchange exchange = new CustomExchange(SECKILL_PARTITION_EXCHANGE, "x-consistent-hash", true, false);
+        declarables.add(exchange);
+        for (String queueName : seckillPartitionQueueNames) {
+            Queue queue = QueueBuilder.durable(queueName)
+                    .singleActiveConsumer()
+                    .deadLetterExchange(SECKILL_DLX_EXCHANGE)
+                    .deadLetterRoutingKey(SECKILL_DLX_ROUTING_KEY)
+                    .build();
+            declarables.add(queue);
+            declarables.add(BindingBuilder.bind(queue).to(exchange).with("1").noargs());
+        }
+        return new Declarables(declarables);
+    }
+
     // ================== 秒杀订单队列 ==================
 
     @Bean
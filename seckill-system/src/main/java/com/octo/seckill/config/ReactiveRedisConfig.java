@@ -0,0 +1,53 @@
+package com.octo.seckill.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisPassword;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+
+/**
+ * 响应式Redis配置（seckill.reactive.enabled=true 时生效）
+ *
+ * 阻塞链路使用的 RedisConnectionFactory 由Redisson提供，这里单独创建一个Lettuce连接工厂：
+ * 1. 所有命令复用同一条原生连接（多路复用），由Lettuce的Netty事件循环收发，不占用业务线程
+ * 2. 连接工厂不注册为Bean，避免替换掉阻塞链路使用的连接工厂
+ * 3. 连接参数复用 spring.data.redis 的单机配置
+ *
+ * 未开启时使用Spring Boot自动配置的同名Bean（基于Redisson连接工厂），仅供启动注入，不在请求链路上使用
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "seckill.reactive", name = "enabled", havingValue = "true")
+public class ReactiveRedisConfig implements DisposableBean {
+
+    private LettuceConnectionFactory connectionFactory;
+
+    @Bean
+    public ReactiveStringRedisTemplate reactiveStringRedisTemplate(RedisProperties redisProperties) {
+        RedisStandaloneConfiguration standalone =
+                new RedisStandaloneConfiguration(redisProperties.getHost(), redisProperties.getPort());
+        standalone.setDatabase(redisProperties.getDatabase());
+        standalone.setPassword(RedisPassword.of(redisProperties.getPassword()));
+
+        LettuceClientConfiguration.LettuceClientConfigurationBuilder client = LettuceClientConfiguration.builder();
+        if (redisProperties.getTimeout() != null) {
+            client.commandTimeout(redisProperties.getTimeout());
+        }
+
+        connectionFactory = new LettuceConnectionFactory(standalone, client.build());
+        connectionFactory.afterPropertiesSet();
+        return new ReactiveStringRedisTemplate(connectionFactory);
+    }
+
+    @Override
+    public void destroy() {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.octo.seckill.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Redis配置
+ *
+ * 提供Redis发布/订阅监听容器，用于多实例间广播本地缓存变更（如活动售罄标记）
+ */
+@Configuration
+public class RedisConfig {
+
+    /**
+     * Redis消息监听容器
+     * 各业务组件在启动时自行注册关心的频道
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+}
@@ -0,0 +1,38 @@
+package com.octo.seckill.controller;
+
+import com.octo.seckill.annotation.RateLimit;
+import com.octo.seckill.common.Result;
+import com.octo.seckill.dto.SeckillRequest;
+import com.octo.seckill.service.SeckillService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 秒杀下单控制器（阻塞版，默认）
+ *
+ * 整个请求在Tomcat工作线程上同步执行；seckill.reactive.enabled=true 时由 {@link ReactiveSeckillController} 替代
+ */
+@RestController
+@RequestMapping("/api/seckill")
+@ConditionalOnProperty(prefix = "seckill.reactive", name = "enabled", havingValue = "false", matchIfMissing = true)
+@RequiredArgsConstructor
+public class BlockingSeckillController {
+
+    private final SeckillService seckillService;
+
+    /**
+     * 执行秒杀
+     * 
+     * 限流配置：整个集群每秒1000次请求（Redis不可用时降级为单节点每秒1000次，超时500ms）
+     */
+    @PostMapping("/do")
+    @RateLimit(permitsPerSecond = 1000, timeout = 500, distributed = true)
+    public Result<String> doSeckill(@Valid @RequestBody SeckillRequest request) {
+        return seckillService.doSeckill(request);
+    }
+}
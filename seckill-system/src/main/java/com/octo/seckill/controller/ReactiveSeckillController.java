@@ -0,0 +1,40 @@
+package com.octo.seckill.controller;
+
+import com.octo.seckill.annotation.RateLimit;
+import com.octo.seckill.common.Result;
+import com.octo.seckill.dto.SeckillRequest;
+import com.octo.seckill.service.ReactiveSeckillService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * 秒杀下单控制器（响应式，seckill.reactive.enabled=true 时生效）
+ *
+ * 返回Mono后Spring MVC按Servlet异步请求处理：Tomcat线程解析完请求立即归还，
+ * 结果就绪后再派发回Tomcat线程写响应，等待Redis期间不占用任何线程
+ */
+@RestController
+@RequestMapping("/api/seckill")
+@ConditionalOnProperty(prefix = "seckill.reactive", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ReactiveSeckillController {
+
+    private final ReactiveSeckillService reactiveSeckillService;
+
+    /**
+     * 执行秒杀，返回值与阻塞版一致
+     *
+     * 限流配置：整个集群每秒1000次请求（Redis不可用时降级为单节点每秒1000次，不等待）
+     */
+    @PostMapping("/do")
+    @RateLimit(permitsPerSecond = 1000, timeout = 500, distributed = true)
+    public Mono<Result<String>> doSeckill(@Valid @RequestBody SeckillRequest request) {
+        return reactiveSeckillService.doSeckill(request);
+    }
+}
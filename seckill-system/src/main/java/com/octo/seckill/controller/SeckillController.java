@@ -1,15 +1,13 @@
 package com.octo.seckill.controller;
 
-import com.octo.seckill.annotation.RateLimit;
 import com.octo.seckill.common.Result;
-import com.octo.seckill.dto.SeckillRequest;
 import com.octo.seckill.entity.SeckillActivity;
 import com.octo.seckill.mapper.SeckillActivityMapper;
 import com.octo.seckill.service.SeckillService;
 import com.octo.seckill.service.StockCacheService;
-import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.util.HashMap;
 import java.util.List;
@@ -19,8 +17,9 @@ import java.util.Map;
  * 秒杀控制器
  * 
  * API接口：
- * - POST /api/seckill/do       执行秒杀
+ * - POST /api/seckill/do       执行秒杀（{@link BlockingSeckillController} / {@link ReactiveSeckillController}，由 seckill.reactive.enabled 选择）
  * - GET  /api/seckill/result   查询秒杀结果
+ * - GET  /api/seckill/result/wait 长轮询等待秒杀结果
  * - GET  /api/seckill/activities 查询秒杀活动列表
  * - GET  /api/seckill/stock/{activityId} 查询库存
  */
@@ -33,17 +32,6 @@ public class SeckillController {
     private final SeckillActivityMapper activityMapper;
     private final StockCacheService stockCacheService;
 
-    /**
-     * 执行秒杀
-     * 
-     * 限流配置：每秒1000次请求，超时500ms
-     */
-    @PostMapping("/do")
-    @RateLimit(permitsPerSecond = 1000, timeout = 500)
-    public Result<String> doSeckill(@Valid @RequestBody SeckillRequest request) {
-        return seckillService.doSeckill(request);
-    }
-
     /**
      * 查询秒杀结果
      */
@@ -54,6 +42,17 @@ public class SeckillController {
         return seckillService.getSeckillResult(userId, activityId);
     }
 
+    /**
+     * 长轮询等待秒杀结果
+     * 请求挂起直到订单落库结果推送或超时，替代客户端高频轮询
+     */
+    @GetMapping("/result/wait")
+    public DeferredResult<Result<String>> waitSeckillResult(
+            @RequestParam Long userId,
+            @RequestParam Long activityId) {
+        return seckillService.waitSeckillResult(userId, activityId);
+    }
+
     /**
      * 查询秒杀活动列表
      */
@@ -0,0 +1,38 @@
+package com.octo.seckill.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 秒杀最终结果 - 消费者写入Redis，供结果查询和长轮询使用
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeckillResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int STATUS_SUCCESS = 1;
+    public static final int STATUS_FAILED = 2;
+
+    /**
+     * 结果状态: 1-下单成功 2-下单失败
+     */
+    private Integer status;
+
+    /**
+     * 订单号（成功时）
+     */
+    private String orderNo;
+
+    /**
+     * 失败原因（失败时）
+     */
+    private String reason;
+}
@@ -4,8 +4,12 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.octo.seckill.entity.SeckillActivity;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 /**
  * 秒杀活动Mapper
  */
@@ -26,6 +30,18 @@ public interface SeckillActivityMapper extends BaseMapper<SeckillActivity> {
             "WHERE id = #{activityId} AND available_stock > 0")
     int deductStock(@Param("activityId") Long activityId);
 
+    /**
+     * 批量扣减库存 - 批量消费时一次扣减k件
+     *
+     * @param activityId 活动ID
+     * @param count 扣减数量
+     * @return 影响行数，0表示剩余库存不足count
+     */
+    @Update("UPDATE t_seckill_activity SET available_stock = available_stock - #{count}, " +
+            "version = version + 1 " +
+            "WHERE id = #{activityId} AND available_stock >= #{count}")
+    int deductStockBatch(@Param("activityId") Long activityId, @Param("count") int count);
+
     /**
      * 恢复库存 - 订单取消或超时时调用
      *
@@ -36,5 +52,24 @@ public interface SeckillActivityMapper extends BaseMapper<SeckillActivity> {
             "version = version + 1 " +
             "WHERE id = #{activityId}")
     int restoreStock(@Param("activityId") Long activityId);
-}
 
+    /**
+     * 查询指定时间前开始、且尚未结束的活动 - 库存预热用
+     *
+     * @param now 当前时间
+     * @param startBefore 开始时间上限
+     * @return 活动列表
+     */
+    @Select("SELECT * FROM t_seckill_activity WHERE start_time <= #{startBefore} AND end_time > #{now}")
+    List<SeckillActivity> selectUpcoming(@Param("now") LocalDateTime now,
+                                         @Param("startBefore") LocalDateTime startBefore);
+
+    /**
+     * 查询进行中的活动ID - 库存对账用
+     *
+     * @param now 当前时间
+     * @return 活动ID列表
+     */
+    @Select("SELECT id FROM t_seckill_activity WHERE status = 1 AND start_time <= #{now} AND end_time > #{now}")
+    List<Long> selectActiveIds(@Param("now") LocalDateTime now);
+}
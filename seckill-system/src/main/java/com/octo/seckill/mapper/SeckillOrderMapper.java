@@ -2,10 +2,14 @@ package com.octo.seckill.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.octo.seckill.entity.SeckillOrder;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * 秒杀订单Mapper
  */
@@ -21,5 +25,32 @@ public interface SeckillOrderMapper extends BaseMapper<SeckillOrder> {
      */
     @Select("SELECT COUNT(1) FROM t_seckill_order WHERE user_id = #{userId} AND activity_id = #{activityId}")
     int countByUserAndActivity(@Param("userId") Long userId, @Param("activityId") Long activityId);
-}
 
+    /**
+     * 批量查询已下单的用户 - 批量消费时的幂等检查
+     *
+     * @param activityId 活动ID
+     * @param userIds 用户ID集合
+     * @return 已存在订单的用户ID
+     */
+    @Select("<script>" +
+            "SELECT user_id FROM t_seckill_order WHERE activity_id = #{activityId} AND user_id IN " +
+            "<foreach collection='userIds' item='userId' open='(' separator=',' close=')'>#{userId}</foreach>" +
+            "</script>")
+    List<Long> selectExistingUserIds(@Param("activityId") Long activityId,
+                                     @Param("userIds") Collection<Long> userIds);
+
+    /**
+     * 多行插入订单
+     *
+     * @param orders 订单列表
+     * @return 插入行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO t_seckill_order (order_no, user_id, activity_id, product_id, seckill_price, status) VALUES " +
+            "<foreach collection='orders' item='o' separator=','>" +
+            "(#{o.orderNo}, #{o.userId}, #{o.activityId}, #{o.productId}, #{o.seckillPrice}, #{o.status})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("orders") List<SeckillOrder> orders);
+}
@@ -0,0 +1,187 @@
+package com.octo.seckill.mq;
+
+import com.octo.seckill.config.RabbitMQConfig;
+import com.octo.seckill.dto.SeckillMessage;
+import com.octo.seckill.service.SeckillMetrics;
+import com.octo.seckill.service.SeckillOrderService;
+import com.octo.seckill.service.SeckillResultService;
+import com.octo.seckill.service.StockCacheService;
+import com.rabbitmq.client.Channel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 秒杀消息批量消费者
+ *
+ * 面试要点：如何提升订单落库吞吐？
+ *
+ * 单条消费（prefetch=1）每条消息一个事务：count查询 + UPDATE + INSERT + ACK，
+ * 10万订单需要10万次事务提交。批量消费后：
+ *
+ * 1. 一次拉取N条消息（seckill.consumer.batch.size，或等待 receive-timeout 毫秒）
+ * 2. 按活动分组，每个活动：
+ *    - 一次 IN 查询做幂等检查
+ *    - 一条 UPDATE available_stock = available_stock - k
+ *    - 一条多行 INSERT
+ * 3. 整批处理完后一次 basicAck(multiple=true)
+ *
+ * 降级：批量事务因库存不足或唯一索引冲突回滚时，该活动的消息逐条走单条事务
+ * 事务提交后的写结果、指标、扣减在途计数失败只记录日志，不降级（否则整批会被判为重复消费）
+ *
+ * 注意：批量消费只作用于单队列 SECKILL_QUEUE，不与分区队列同时启用
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "seckill.consumer.batch.enabled", havingValue = "true")
+public class SeckillBatchMessageConsumer {
+
+    private final SeckillOrderService orderService;
+    private final StockCacheService stockCacheService;
+    private final SeckillResultService resultService;
+    private final SeckillMetrics metrics;
+
+    /**
+     * 批量消费秒杀消息
+     */
+    @RabbitListener(queues = RabbitMQConfig.SECKILL_QUEUE, containerFactory = "batchListenerContainerFactory")
+    public void handleSeckillMessages(List<Message<SeckillMessage>> messages, Channel channel) throws IOException {
+        log.info("收到批量秒杀消息: size={}", messages.size());
+
+        // 按活动分组，保持到达顺序
+        Map<Long, List<Message<SeckillMessage>>> groups = new LinkedHashMap<>();
+        for (Message<SeckillMessage> message : messages) {
+            groups.computeIfAbsent(message.getPayload().getActivityId(), k -> new ArrayList<>()).add(message);
+        }
+
+        Set<Long> nackedTags = new HashSet<>();
+        for (Map.Entry<Long, List<Message<SeckillMessage>>> entry : groups.entrySet()) {
+            handleActivityGroup(entry.getKey(), entry.getValue(), channel, nackedTags);
+        }
+
+        // 失败消息已单独NACK，其余消息一次性确认（不能用已NACK的tag做multiple ack）
+        long lastDeliveryTag = 0;
+        for (Message<SeckillMessage> message : messages) {
+            long tag = deliveryTag(message);
+            if (!nackedTags.contains(tag)) {
+                lastDeliveryTag = Math.max(lastDeliveryTag, tag);
+            }
+        }
+        if (lastDeliveryTag > 0) {
+            channel.basicAck(lastDeliveryTag, true);
+        }
+    }
+
+    /**
+     * 处理同一活动的一组消息
+     */
+    private void handleActivityGroup(Long activityId, List<Message<SeckillMessage>> group,
+                                     Channel channel, Set<Long> nackedTags) throws IOException {
+        List<SeckillMessage> payloads = new ArrayList<>(group.size());
+        for (Message<SeckillMessage> message : group) {
+            payloads.add(message.getPayload());
+        }
+
+        List<SeckillMessage> duplicated;
+        try {
+            duplicated = metrics.record(SeckillMetrics.STAGE_ORDER_TX, activityId,
+                    () -> orderService.createOrdersInBatch(activityId, payloads));
+        } catch (Exception e) {
+            log.warn("批量创建订单失败，降级为逐条处理: activityId={}, size={}, reason={}",
+                    activityId, group.size(), e.getMessage());
+            handleOneByOne(activityId, group, channel, nackedTags);
+            return;
+        }
+
+        // 以下均在批量事务提交之后：失败只记录日志，不能再降级逐条处理（逐条处理会把整批判为重复消费）
+        // 重复消费（订单已存在）：库存和在途计数在首次处理时已结算，只记录日志后随整批ACK
+        for (SeckillMessage message : duplicated) {
+            log.warn("重复消费，订单已存在: userId={}, activityId={}", message.getUserId(), activityId);
+        }
+        // 按引用剔除重复消息（同一消息重投时内容相同，不能用equals）
+        Set<SeckillMessage> skipped = Collections.newSetFromMap(new IdentityHashMap<>());
+        skipped.addAll(duplicated);
+        List<SeckillMessage> created = new ArrayList<>(payloads.size());
+        for (SeckillMessage message : payloads) {
+            if (!skipped.contains(message)) {
+                created.add(message);
+            }
+        }
+        afterCommit("写入秒杀结果", activityId, () -> resultService.saveSuccess(created));
+        afterCommit("记录订单指标", activityId, () -> {
+            metrics.countOrder(activityId, "created", created.size());
+            metrics.countOrder(activityId, "duplicated", duplicated.size());
+        });
+        afterCommit("扣减在途订单计数", activityId, () -> stockCacheService.releaseInflight(activityId, created));
+    }
+
+    /**
+     * 逐条处理（批量事务回滚后的降级）
+     * 只有建单事务本身失败才撤销准入并NACK；事务提交后的步骤失败只记录日志
+     */
+    private void handleOneByOne(Long activityId, List<Message<SeckillMessage>> group,
+                                Channel channel, Set<Long> nackedTags) throws IOException {
+        for (Message<SeckillMessage> message : group) {
+            SeckillMessage payload = message.getPayload();
+            SeckillOrderService.CreateResult result;
+            try {
+                result = metrics.record(SeckillMetrics.STAGE_ORDER_TX,
+                        activityId, () -> orderService.createOrder(payload));
+            } catch (Exception e) {
+                log.error("秒杀消息处理异常: orderNo={}, {}", payload.getOrderNo(), e.getMessage(), e);
+                metrics.countOrder(activityId, "error");
+                resultService.saveFailure(payload, "订单创建失败");
+                stockCacheService.cancelAdmission(activityId, payload.getUserId());
+                // 拒绝消息，不重新入队（进入死信队列）
+                channel.basicNack(deliveryTag(message), false, false);
+                nackedTags.add(deliveryTag(message));
+                continue;
+            }
+
+            afterCommit("记录订单指标", activityId, () -> metrics.countOrder(activityId, result.name().toLowerCase()));
+            if (result == SeckillOrderService.CreateResult.CREATED) {
+                afterCommit("写入秒杀结果", activityId, () -> resultService.saveSuccess(payload));
+                afterCommit("扣减在途订单计数", activityId,
+                        () -> stockCacheService.releaseInflight(activityId, payload.getUserId()));
+            } else if (result == SeckillOrderService.CreateResult.SOLD_OUT) {
+                // 数据库库存不足：撤销准入，用户可重试
+                afterCommit("撤销准入", activityId, () -> {
+                    resultService.saveFailure(payload, "商品已售罄");
+                    stockCacheService.cancelAdmission(activityId, payload.getUserId());
+                });
+            }
+            // 重复消费（订单已存在）：库存和在途计数在首次处理时已结算，直接ACK
+        }
+    }
+
+    /**
+     * 执行建单事务之后的步骤，失败只记录日志（订单已落库，不能撤销准入或降级重做）
+     */
+    private void afterCommit(String action, Long activityId, Runnable task) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            log.error("建单后续步骤失败: action={}, activityId={}", action, activityId, e);
+        }
+    }
+
+    private long deliveryTag(Message<SeckillMessage> message) {
+        Long tag = message.getHeaders().get(AmqpHeaders.DELIVERY_TAG, Long.class);
+        return tag != null ? tag : 0L;
+    }
+}
@@ -2,9 +2,9 @@ package com.octo.seckill.mq;
 
 import com.octo.seckill.config.RabbitMQConfig;
 import com.octo.seckill.dto.SeckillMessage;
-import com.octo.seckill.entity.SeckillOrder;
-import com.octo.seckill.mapper.SeckillActivityMapper;
-import com.octo.seckill.mapper.SeckillOrderMapper;
+import com.octo.seckill.service.SeckillMetrics;
+import com.octo.seckill.service.SeckillOrderService;
+import com.octo.seckill.service.SeckillResultService;
 import com.octo.seckill.service.StockCacheService;
 import com.rabbitmq.client.Channel;
 import lombok.RequiredArgsConstructor;
@@ -13,7 +13,6 @@ import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
 
@@ -39,67 +38,70 @@ import java.io.IOException;
 @RequiredArgsConstructor
 public class SeckillMessageConsumer {
 
-    private final SeckillOrderMapper orderMapper;
-    private final SeckillActivityMapper activityMapper;
+    private final SeckillOrderService orderService;
     private final StockCacheService stockCacheService;
+    private final SeckillResultService resultService;
+    private final SeckillMetrics metrics;
 
     /**
      * 消费秒杀消息，创建订单
+     * 开启批量消费模式（seckill.consumer.batch.enabled=true）时不启动，由 {@link SeckillBatchMessageConsumer} 接管
+     * 开启分区队列（seckill.mq.partition.enabled=true）时不启动，由 {@link SeckillPartitionMessageConsumer} 接管
      */
-    @RabbitListener(queues = RabbitMQConfig.SECKILL_QUEUE)
-    @Transactional(rollbackFor = Exception.class)
+    @RabbitListener(queues = RabbitMQConfig.SECKILL_QUEUE,
+            autoStartup = "#{!${seckill.consumer.batch.enabled:false} && !${seckill.mq.partition.enabled:false}}")
     public void handleSeckillMessage(SeckillMessage message, 
                                      Channel channel,
                                      @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) throws IOException {
         log.info("收到秒杀消息: userId={}, activityId={}, orderNo={}", 
                 message.getUserId(), message.getActivityId(), message.getOrderNo());
         
+        Long activityId = message.getActivityId();
+        SeckillOrderService.CreateResult result;
         try {
-            // 1. 幂等性检查 - 是否已创建订单
-            int count = orderMapper.countByUserAndActivity(message.getUserId(), message.getActivityId());
-            if (count > 0) {
-                log.warn("重复消费，订单已存在: userId={}, activityId={}", 
-                        message.getUserId(), message.getActivityId());
-                // 恢复Redis库存
-                stockCacheService.restoreStock(message.getActivityId());
-                channel.basicAck(deliveryTag, false);
-                return;
-            }
-
-            // 2. 数据库扣减库存（乐观锁）
-            int updated = activityMapper.deductStock(message.getActivityId());
-            if (updated == 0) {
-                log.warn("数据库库存不足: activityId={}", message.getActivityId());
-                // 恢复Redis库存
-                stockCacheService.restoreStock(message.getActivityId());
-                channel.basicAck(deliveryTag, false);
-                return;
-            }
-
-            // 3. 创建订单
-            SeckillOrder order = new SeckillOrder();
-            order.setOrderNo(message.getOrderNo());
-            order.setUserId(message.getUserId());
-            order.setActivityId(message.getActivityId());
-            order.setProductId(message.getProductId());
-            order.setSeckillPrice(message.getSeckillPrice());
-            order.setStatus(0); // 待支付
-
-            orderMapper.insert(order);
-            
-            log.info("秒杀订单创建成功: orderNo={}, userId={}", message.getOrderNo(), message.getUserId());
-
-            // 4. 手动ACK确认
-            channel.basicAck(deliveryTag, false);
-
+            // 幂等检查 + 数据库乐观锁扣减 + 创建订单（单条事务）
+            result = metrics.record(SeckillMetrics.STAGE_ORDER_TX,
+                    activityId, () -> orderService.createOrder(message));
         } catch (Exception e) {
             log.error("秒杀消息处理异常: {}", e.getMessage(), e);
+            metrics.countOrder(activityId, "error");
             
-            // 恢复Redis库存
-            stockCacheService.restoreStock(message.getActivityId());
+            // 撤销准入，恢复Redis库存
+            resultService.saveFailure(message, "订单创建失败");
+            stockCacheService.cancelAdmission(activityId, message.getUserId());
             
             // 拒绝消息，不重新入队（进入死信队列）
             channel.basicNack(deliveryTag, false, false);
+            return;
+        }
+
+        // 以下均在事务提交之后：失败只记录日志，不能撤销准入或NACK（订单已落库）
+        afterCommit("记录订单指标", activityId, () -> metrics.countOrder(activityId, result.name().toLowerCase()));
+        if (result == SeckillOrderService.CreateResult.CREATED) {
+            afterCommit("写入秒杀结果", activityId, () -> resultService.saveSuccess(message));
+            afterCommit("扣减在途订单计数", activityId,
+                    () -> stockCacheService.releaseInflight(activityId, message.getUserId()));
+        } else if (result == SeckillOrderService.CreateResult.SOLD_OUT) {
+            // 数据库库存不足：撤销准入（归还Redis库存、扣回在途计数、清除已秒杀位），用户可重试
+            afterCommit("撤销准入", activityId, () -> {
+                resultService.saveFailure(message, "商品已售罄");
+                stockCacheService.cancelAdmission(activityId, message.getUserId());
+            });
+        }
+        // 重复消费（订单已存在）：库存和在途计数在首次处理时已结算，直接ACK
+
+        // 手动ACK确认
+        channel.basicAck(deliveryTag, false);
+    }
+
+    /**
+     * 执行建单事务之后的步骤，失败只记录日志
+     */
+    private void afterCommit(String action, Long activityId, Runnable task) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            log.error("建单后续步骤失败: action={}, activityId={}", action, activityId, e);
         }
     }
 
@@ -2,10 +2,32 @@ package com.octo.seckill.mq;
 
 import com.octo.seckill.config.RabbitMQConfig;
 import com.octo.seckill.dto.SeckillMessage;
+import com.octo.seckill.service.SeckillMetrics;
+import com.octo.seckill.service.SeckillResultService;
+import com.octo.seckill.service.StockCacheService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * 秒杀消息生产者
@@ -26,6 +48,12 @@ import org.springframework.stereotype.Component;
  * 1. 手动ACK
  * 2. 消费失败重试
  * 3. 死信队列兜底
+ *
+ * 异步批量发送：
+ * 1. 请求线程只把消息放入内存有界缓冲区，不再同步等待Broker，请求延迟与Broker延迟解耦
+ * 2. 发送线程批量取出消息，逐条携带CorrelationData发送后统一等待发布确认
+ * 3. 缓冲区已满、发送异常、确认超时或被nack的消息写入本地溢出文件 {@link SeckillMessageSpillStore}
+ * 4. Broker不可用期间新消息直接落盘，定时回放成功后恢复正常发送
  */
 @Slf4j
 @Component
@@ -33,21 +61,268 @@ import org.springframework.stereotype.Component;
 public class SeckillMessageProducer {
 
     private final RabbitTemplate rabbitTemplate;
+    private final SeckillMessageSpillStore spillStore;
+    private final StockCacheService stockCacheService;
+    private final SeckillResultService resultService;
+    private final SeckillMetrics metrics;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${seckill.mq.partition.enabled}")
+    private boolean partitionEnabled;
+
+    @Value("${seckill.mq.partition.user-buckets}")
+    private int userBuckets;
+
+    @Value("${seckill.mq.publisher.buffer-size}")
+    private int bufferSize;
+
+    @Value("${seckill.mq.publisher.threads}")
+    private int publisherThreads;
+
+    @Value("${seckill.mq.publisher.batch-size}")
+    private int batchSize;
+
+    @Value("${seckill.mq.publisher.confirm-timeout-millis}")
+    private long confirmTimeoutMillis;
 
     /**
-     * 发送秒杀订单消息
+     * 待发送消息缓冲区
+     */
+    private BlockingQueue<SeckillMessage> buffer;
+
+    private final List<Thread> publishers = new ArrayList<>();
+
+    private volatile boolean running = true;
+
+    /**
+     * Broker是否可用：发送失败后置为false，新消息直接落盘，回放成功后恢复
+     */
+    private volatile boolean brokerAvailable = true;
+
+    @PostConstruct
+    public void start() {
+        buffer = new ArrayBlockingQueue<>(bufferSize);
+        meterRegistry.gaugeCollectionSize("seckill.mq.buffer.size", List.of(), buffer);
+        for (int i = 0; i < publisherThreads; i++) {
+            Thread thread = new Thread(this::runPublisher, "seckill-publisher-" + i);
+            thread.start();
+            publishers.add(thread);
+        }
+        log.info("秒杀消息发送线程已启动: threads={}, bufferSize={}", publisherThreads, bufferSize);
+    }
+
+    /**
+     * 发送秒杀订单消息（异步）
+     * 消息放入缓冲区即返回；缓冲区已满时在请求线程落盘，落盘失败才抛出异常
      * 
      * @param message 秒杀消息
      */
     public void sendSeckillMessage(SeckillMessage message) {
         log.info("发送秒杀消息: userId={}, activityId={}, orderNo={}", 
                 message.getUserId(), message.getActivityId(), message.getOrderNo());
-        
+
+        if (buffer.offer(message)) {
+            return;
+        }
+        spillOverflow(message);
+    }
+
+    /**
+     * 发送秒杀订单消息（响应式）
+     * 放入缓冲区不阻塞，直接完成；缓冲区已满时落盘（磁盘同步写）切换到弹性线程池执行，不占用事件循环线程
+     */
+    public Mono<Void> sendSeckillMessageReactive(SeckillMessage message) {
+        return Mono.defer(() -> {
+            log.info("发送秒杀消息: userId={}, activityId={}, orderNo={}",
+                    message.getUserId(), message.getActivityId(), message.getOrderNo());
+            if (buffer.offer(message)) {
+                return Mono.empty();
+            }
+            return Mono.fromRunnable(() -> spillOverflow(message))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .then();
+        });
+    }
+
+    /**
+     * 缓冲区已满的消息直接落盘，落盘失败抛出异常由调用方撤销准入
+     */
+    private void spillOverflow(SeckillMessage message) {
+        try {
+            spillStore.append(List.of(message));
+            metrics.countSpilled(message.getActivityId());
+        } catch (IOException e) {
+            throw new UncheckedIOException("秒杀消息落盘失败", e);
+        }
+    }
+
+    /**
+     * 发送线程：批量取出消息发送并等待确认，失败的消息落盘
+     */
+    private void runPublisher() {
+        List<SeckillMessage> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                SeckillMessage first = buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+
+                List<SeckillMessage> failed = brokerAvailable ? publishAndConfirm(batch) : batch;
+                if (!failed.isEmpty()) {
+                    brokerAvailable = false;
+                    spill(failed);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 定时回放溢出文件中的消息
+     * 全部确认后认为Broker已恢复；仍有失败的消息重新追加到溢出文件，等待下次回放
+     */
+    @Scheduled(fixedDelayString = "${seckill.mq.publisher.replay-interval-millis}")
+    public void replaySpilledMessages() {
+        try {
+            if (spillStore.isEmpty()) {
+                brokerAvailable = true;
+                return;
+            }
+            List<SeckillMessage> messages = spillStore.takeForReplay();
+            List<SeckillMessage> failed = new ArrayList<>();
+            for (int from = 0; from < messages.size(); from += batchSize) {
+                List<SeckillMessage> chunk = messages.subList(from, Math.min(from + batchSize, messages.size()));
+                if (!failed.isEmpty()) {
+                    // Broker仍不可用，剩余消息不再尝试
+                    failed.addAll(chunk);
+                    continue;
+                }
+                failed.addAll(publishAndConfirm(chunk));
+            }
+            spillStore.append(failed);
+            spillStore.finishReplay();
+            brokerAvailable = failed.isEmpty();
+            log.info("秒杀消息溢出文件回放完成: total={}, failed={}", messages.size(), failed.size());
+        } catch (IOException e) {
+            log.error("秒杀消息溢出文件回放失败", e);
+        }
+    }
+
+    /**
+     * 停止发送线程，缓冲区中剩余的消息落盘，重启后回放
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread thread : publishers) {
+            thread.join(confirmTimeoutMillis * 2);
+        }
+        List<SeckillMessage> remaining = new ArrayList<>();
+        buffer.drainTo(remaining);
+        spill(remaining);
+    }
+
+    /**
+     * 批量发送并等待发布确认
+     *
+     * @return 未被确认的消息（发送异常、nack、无法路由或超时）
+     */
+    private List<SeckillMessage> publishAndConfirm(List<SeckillMessage> batch) {
+        long startNanos = System.nanoTime();
+        List<CorrelationData> pending = new ArrayList<>(batch.size());
+        try {
+            for (SeckillMessage message : batch) {
+                CorrelationData correlation = new CorrelationData(message.getOrderNo());
+                send(message, correlation);
+                pending.add(correlation);
+            }
+        } catch (AmqpException e) {
+            log.warn("秒杀消息发送异常: sent={}, batch={}, reason={}", pending.size(), batch.size(), e.getMessage());
+        }
+
+        List<SeckillMessage> failed = new ArrayList<>(batch.subList(pending.size(), batch.size()));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMillis);
+        for (int i = 0; i < pending.size(); i++) {
+            if (!isConfirmed(pending.get(i), deadline)) {
+                failed.add(batch.get(i));
+            }
+        }
+        // 整批统一等待确认，批内每条消息的确认耗时按整批耗时计
+        long elapsedNanos = System.nanoTime() - startNanos;
+        for (int i = 0; i < pending.size(); i++) {
+            metrics.record(SeckillMetrics.STAGE_MQ_CONFIRM, batch.get(i).getActivityId(), elapsedNanos);
+        }
+        return failed;
+    }
+
+    private boolean isConfirmed(CorrelationData correlation, long deadline) {
+        long waitNanos = Math.max(0, deadline - System.nanoTime());
+        try {
+            CorrelationData.Confirm confirm = correlation.getFuture().get(waitNanos, TimeUnit.NANOSECONDS);
+            return confirm.isAck() && correlation.getReturned() == null;
+        } catch (TimeoutException | ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void send(SeckillMessage message, CorrelationData correlation) {
+        if (partitionEnabled) {
+            // 一致性哈希交换机按routingKey哈希到分区队列
+            rabbitTemplate.convertAndSend(
+                    RabbitMQConfig.SECKILL_PARTITION_EXCHANGE,
+                    getPartitionRoutingKey(message),
+                    message,
+                    correlation
+            );
+            return;
+        }
+
         rabbitTemplate.convertAndSend(
                 RabbitMQConfig.SECKILL_EXCHANGE,
                 RabbitMQConfig.SECKILL_ROUTING_KEY,
-                message
+                message,
+                correlation
         );
     }
+
+    /**
+     * 消息落盘；落盘也失败时消息无法保留，撤销准入归还库存，避免库存凭空丢失
+     */
+    private void spill(List<SeckillMessage> messages) {
+        try {
+            spillStore.append(messages);
+            for (SeckillMessage message : messages) {
+                metrics.countSpilled(message.getActivityId());
+            }
+        } catch (IOException e) {
+            log.error("秒杀消息落盘失败，撤销准入: count={}", messages.size(), e);
+            for (SeckillMessage message : messages) {
+                resultService.saveFailure(message, "系统繁忙");
+                stockCacheService.cancelAdmission(message.getActivityId(), message.getUserId());
+            }
+        }
+    }
+
+    /**
+     * 分区路由键
+     * 默认按活动ID路由，同一活动只进入一个分区；
+     * 单个活动过热时可配置 user-buckets > 1，按 活动ID + 用户分桶 分散到多个分区
+     */
+    private String getPartitionRoutingKey(SeckillMessage message) {
+        if (userBuckets <= 1) {
+            return String.valueOf(message.getActivityId());
+        }
+        return message.getActivityId() + ":" + Math.floorMod(message.getUserId(), userBuckets);
+    }
 }
 
@@ -0,0 +1,139 @@
+package com.octo.seckill.mq;
+
+import com.alibaba.fastjson2.JSON;
+import com.octo.seckill.dto.SeckillMessage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 秒杀消息本地溢出文件
+ *
+ * Broker不可用或发送缓冲区已满时，消息以JSON行追加写入本地文件并fsync，
+ * Broker恢复后由 {@link SeckillMessageProducer} 回放：
+ *   - 回放前将溢出文件重命名为回放文件，新溢出的消息继续写入新的溢出文件
+ *   - 回放完成（未确认的消息已重新追加到溢出文件）后删除回放文件
+ *   - 回放中途宕机，重启后回放文件仍在，会整体再回放一次，重复消息由消费端幂等处理
+ */
+@Slf4j
+@Component
+public class SeckillMessageSpillStore {
+
+    private static final String SPILL_FILE = "seckill-messages.spill";
+    private static final String REPLAY_FILE = "seckill-messages.replaying";
+
+    @Value("${seckill.mq.publisher.spill-dir}")
+    private String spillDir;
+
+    private final Object lock = new Object();
+
+    private Path spillPath;
+    private Path replayPath;
+    private FileChannel channel;
+
+    @PostConstruct
+    public void init() throws IOException {
+        Path dir = Paths.get(spillDir);
+        Files.createDirectories(dir);
+        spillPath = dir.resolve(SPILL_FILE);
+        replayPath = dir.resolve(REPLAY_FILE);
+        channel = openSpillFile();
+        if (!isEmpty()) {
+            log.warn("发现未回放的秒杀消息溢出文件，等待Broker可用后回放: dir={}", dir.toAbsolutePath());
+        }
+    }
+
+    /**
+     * 追加消息并刷盘，返回即表示消息已持久化到本地
+     */
+    public void append(List<SeckillMessage> messages) throws IOException {
+        if (messages.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder(messages.size() * 128);
+        for (SeckillMessage message : messages) {
+            lines.append(JSON.toJSONString(message)).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        synchronized (lock) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        log.warn("秒杀消息已写入本地溢出文件: count={}", messages.size());
+    }
+
+    /**
+     * 是否有待回放的消息
+     */
+    public boolean isEmpty() throws IOException {
+        synchronized (lock) {
+            return channel.size() == 0 && !Files.exists(replayPath);
+        }
+    }
+
+    /**
+     * 取出待回放的消息
+     * 上一次回放未完成时继续回放旧文件，否则将当前溢出文件轮转为回放文件
+     */
+    public List<SeckillMessage> takeForReplay() throws IOException {
+        synchronized (lock) {
+            if (!Files.exists(replayPath)) {
+                if (channel.size() == 0) {
+                    return List.of();
+                }
+                channel.close();
+                Files.move(spillPath, replayPath, StandardCopyOption.ATOMIC_MOVE);
+                channel = openSpillFile();
+            }
+        }
+
+        List<SeckillMessage> messages = new ArrayList<>();
+        for (String line : Files.readAllLines(replayPath, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                messages.add(JSON.parseObject(line, SeckillMessage.class));
+            } catch (Exception e) {
+                // 宕机时最后一行可能只写了一半
+                log.error("跳过无法解析的溢出消息: {}", line, e);
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * 回放结束，删除回放文件
+     */
+    public void finishReplay() throws IOException {
+        Files.deleteIfExists(replayPath);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        synchronized (lock) {
+            channel.close();
+        }
+    }
+
+    private FileChannel openSpillFile() throws IOException {
+        return FileChannel.open(spillPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
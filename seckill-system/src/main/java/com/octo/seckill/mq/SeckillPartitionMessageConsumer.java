@@ -0,0 +1,42 @@
+package com.octo.seckill.mq;
+
+import com.octo.seckill.dto.SeckillMessage;
+import com.rabbitmq.client.Channel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * 秒杀分区队列消费者
+ *
+ * 面试要点：单队列为什么扩不动消费者？
+ * - 单队列多消费者：同一活动的消息被多个消费者并发处理，争抢同一行库存的行锁，顺序也无法保证
+ * - 分区后：一致性哈希按活动路由，每个分区一个消费者，分区内串行、分区间并行，
+ *   吞吐随分区数增长
+ *
+ * 每条消息的处理逻辑与单队列一致，复用 {@link SeckillMessageConsumer}
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "seckill.mq.partition.enabled", havingValue = "true")
+public class SeckillPartitionMessageConsumer {
+
+    private final SeckillMessageConsumer seckillMessageConsumer;
+
+    /**
+     * 消费分区队列中的秒杀消息
+     */
+    @RabbitListener(queues = "#{@seckillPartitionQueueNames}", containerFactory = "partitionListenerContainerFactory")
+    public void handleSeckillMessage(SeckillMessage message,
+                                     Channel channel,
+                                     @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) throws IOException {
+        seckillMessageConsumer.handleSeckillMessage(message, channel, deliveryTag);
+    }
+}
@@ -0,0 +1,264 @@
+package com.octo.seckill.service;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.octo.seckill.entity.SeckillActivity;
+import com.octo.seckill.mapper.SeckillActivityMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 活动本地缓存服务（JVM近端缓存）
+ *
+ * 面试要点：售罄后的流量如何做到零I/O？
+ *
+ * 1. 活动元数据本地缓存
+ *    - 活动时间窗口、库存总量、状态等缓存在JVM内（Guava Cache）
+ *    - 短时间过期后自动回源，避免每个请求都 selectById
+ *
+ * 2. 售罄标记本地化
+ *    - 某个节点发现库存扣到0后，本地打上售罄标记
+ *    - 通过Redis Pub/Sub广播给所有实例，各节点直接拒绝后续请求
+ *    - 秒杀尾段95%以上都是售罄请求，这部分请求不再访问DB和Redis
+ *
+ * 3. 售罄标记清除
+ *    - 库存回滚（MQ发送失败、下单失败、库存同步）时广播清除，避免少卖
+ *
+ * 4. 防少卖
+ *    - 只有准入脚本确认库存≤0才标记售罄，库存key未预热/已过期不算售罄
+ *    - 本地标记有短过期时间（sold-out-expire-seconds），过期后下一个请求重新走Redis确认，
+ *      清除广播丢失时最多少卖这么久
+ *    - 标记/清除都先对Redis中的版本号INCR，广播携带版本号，各节点只接受不低于本地版本的状态，
+ *      晚到的旧售罄广播不会覆盖新的清除
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ActivityCacheService implements MessageListener {
+
+    private final SeckillActivityMapper activityMapper;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final SeckillMetrics metrics;
+
+    @Value("${seckill.activity-cache.expire-seconds}")
+    private long expireSeconds;
+
+    @Value("${seckill.activity-cache.maximum-size}")
+    private long maximumSize;
+
+    @Value("${seckill.activity-cache.sold-out-channel}")
+    private String soldOutChannel;
+
+    @Value("${seckill.activity-cache.sold-out-expire-seconds}")
+    private long soldOutExpireSeconds;
+
+    /**
+     * 售罄状态版本号key前缀
+     */
+    private static final String SOLD_OUT_VERSION_PREFIX = "seckill:sold-out:version:";
+
+    /**
+     * 版本号key过期时间，需长于活动时长；过期后版本号从头计数，各节点的本地状态届时早已过期
+     */
+    private static final long SOLD_OUT_VERSION_EXPIRE_DAYS = 7;
+
+    /**
+     * 广播消息格式：{activityId}:{1-售罄 0-恢复}:{版本号}
+     */
+    private static final String FLAG_SOLD_OUT = "1";
+    private static final String FLAG_RESTORED = "0";
+
+    /**
+     * 活动元数据缓存，Optional.empty()表示活动不存在（防止不存在的ID反复查库）
+     */
+    private LoadingCache<Long, Optional<SeckillActivity>> activityCache;
+
+    /**
+     * 各活动的售罄状态（含已清除状态，保留版本号用于丢弃晚到的旧广播）
+     */
+    private final Map<Long, SoldOutState> soldOutStates = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        activityCache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .build(new CacheLoader<>() {
+                    @Override
+                    public Optional<SeckillActivity> load(Long activityId) {
+                        return metrics.record(SeckillMetrics.STAGE_ACTIVITY_LOAD, activityId,
+                                () -> Optional.ofNullable(activityMapper.selectById(activityId)));
+                    }
+                });
+
+        listenerContainer.addMessageListener(this, new ChannelTopic(soldOutChannel));
+        log.info("活动本地缓存已初始化: expireSeconds={}, maximumSize={}, channel={}",
+                expireSeconds, maximumSize, soldOutChannel);
+    }
+
+    /**
+     * 获取活动信息（优先本地缓存）
+     *
+     * @return 活动不存在时返回null
+     */
+    public SeckillActivity getActivity(Long activityId) {
+        return activityCache.getUnchecked(activityId).orElse(null);
+    }
+
+    /**
+     * 获取活动信息（响应式）
+     * 命中本地缓存时直接返回；未命中时回源查库是阻塞调用，切换到弹性线程池执行，不占用事件循环线程
+     *
+     * @return 活动不存在时为空
+     */
+    public Mono<SeckillActivity> getActivityReactive(Long activityId) {
+        Optional<SeckillActivity> cached = activityCache.getIfPresent(activityId);
+        if (cached != null) {
+            return Mono.justOrEmpty(cached);
+        }
+        return Mono.fromCallable(() -> getActivity(activityId))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * 活动是否已售罄（纯内存判断），标记过期后返回false，由下一个请求重新走Redis确认
+     */
+    public boolean isSoldOut(Long activityId) {
+        SoldOutState state = soldOutStates.get(activityId);
+        if (state == null) {
+            return false;
+        }
+        if (state.isExpired(System.currentTimeMillis())) {
+            soldOutStates.remove(activityId, state);
+            return false;
+        }
+        return state.soldOut;
+    }
+
+    /**
+     * 标记活动售罄并广播给所有实例（调用方需确认库存≤0）
+     * 本地标记未过期时不再重复广播，避免售罄后每个请求都发布消息
+     */
+    public void markSoldOut(Long activityId) {
+        if (isSoldOut(activityId)) {
+            return;
+        }
+        long version = nextVersion(activityId);
+        applyState(activityId, true, version);
+        log.info("活动已售罄，广播售罄标记: activityId={}, version={}", activityId, version);
+        redisTemplate.convertAndSend(soldOutChannel, activityId + ":" + FLAG_SOLD_OUT + ":" + version);
+    }
+
+    /**
+     * 仅在本节点标记活动售罄，不广播（沿用本地版本号，之后的清除广播仍可覆盖）
+     */
+    public void markSoldOutLocally(Long activityId) {
+        SoldOutState state = soldOutStates.get(activityId);
+        applyState(activityId, true, state != null ? state.version : 0);
+    }
+
+    /**
+     * 清除售罄标记并广播给所有实例
+     * 其他节点可能已持有标记，因此无论本地是否标记都需广播
+     */
+    public void clearSoldOut(Long activityId) {
+        long version = nextVersion(activityId);
+        applyState(activityId, false, version);
+        redisTemplate.convertAndSend(soldOutChannel, activityId + ":" + FLAG_RESTORED + ":" + version);
+    }
+
+    /**
+     * 定时清理已过期的售罄状态（每分钟），已结束的活动不再被查询，不能只靠 isSoldOut 惰性清理
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void purgeExpiredStates() {
+        long now = System.currentTimeMillis();
+        soldOutStates.entrySet().removeIf(entry -> entry.getValue().isExpired(now));
+    }
+
+    /**
+     * 使活动元数据缓存失效
+     */
+    public void evict(Long activityId) {
+        activityCache.invalidate(activityId);
+    }
+
+    /**
+     * 接收售罄标记广播
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split(":");
+        if (parts.length != 3) {
+            log.warn("无法识别的售罄广播消息: {}", body);
+            return;
+        }
+        try {
+            Long activityId = Long.valueOf(parts[0]);
+            long version = Long.parseLong(parts[2]);
+            applyState(activityId, FLAG_SOLD_OUT.equals(parts[1]), version);
+            log.debug("收到售罄广播: activityId={}, flag={}, version={}", activityId, parts[1], version);
+        } catch (NumberFormatException e) {
+            log.warn("无法识别的售罄广播消息: {}", body);
+        }
+    }
+
+    /**
+     * 更新本地售罄状态，版本号低于本地状态的更新（晚到的旧广播）直接丢弃
+     */
+    private void applyState(Long activityId, boolean soldOut, long version) {
+        long expireAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(soldOutExpireSeconds);
+        soldOutStates.compute(activityId, (id, current) -> {
+            if (current != null && current.version > version) {
+                return current;
+            }
+            return new SoldOutState(soldOut, version, expireAt);
+        });
+    }
+
+    private long nextVersion(Long activityId) {
+        String key = SOLD_OUT_VERSION_PREFIX + activityId;
+        Long version = redisTemplate.opsForValue().increment(key);
+        redisTemplate.expire(key, SOLD_OUT_VERSION_EXPIRE_DAYS, TimeUnit.DAYS);
+        return version != null ? version : 0;
+    }
+
+    /**
+     * 本地售罄状态
+     */
+    private static final class SoldOutState {
+        private final boolean soldOut;
+        private final long version;
+        private final long expireAt;
+
+        private SoldOutState(boolean soldOut, long version, long expireAt) {
+            this.soldOut = soldOut;
+            this.version = version;
+            this.expireAt = expireAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expireAt;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.octo.seckill.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * 集群限流器
+ *
+ * 面试要点：单机限流为什么不够？
+ * - Guava RateLimiter只在本JVM生效，N个节点实际放行 permitsPerSecond × N
+ * - 扩容时限流阈值会被悄悄放大
+ *
+ * 实现方案：Redis全局令牌桶 + 本地批量预取
+ * 1. 令牌桶状态（剩余令牌数、上次补充时间）存放在Redis Hash中，Lua脚本原子补充和扣减
+ * 2. 节点每次从Redis取一小批令牌放到本地，之后在本地CAS扣减
+ *    - Redis调用次数从每请求一次降为每批一次
+ * 3. 本地令牌只在短时间内有效，避免节点囤积令牌导致突发超限
+ * 4. Redis不可用时抛出异常，由调用方降级为单机限流
+ * 5. 响应式接口使用 {@link #tryAcquireReactive}：本地令牌用完时异步预取，同一时刻只有一个预取在途，其余请求共享结果
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DistributedRateLimiter {
+
+    private final StringRedisTemplate redisTemplate;
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate;
+
+    private static final String KEY_PREFIX = "seckill:ratelimit:";
+
+    /**
+     * 本地预取令牌的有效期（毫秒）
+     */
+    private static final long LOCAL_PERMIT_TTL_MILLIS = 1000;
+
+    /**
+     * 令牌桶Lua脚本
+     *
+     * KEYS[1] 令牌桶key，ARGV[1] 每秒生成令牌数，ARGV[2] 桶容量，ARGV[3] 本次申请数量
+     * 使用Redis服务端时间，避免各节点时钟不一致
+     * 返回实际获得的令牌数
+     */
+    private static final DefaultRedisScript<Long> TOKEN_BUCKET_SCRIPT = new DefaultRedisScript<>(
+            "redis.replicate_commands() " +
+            "local rate = tonumber(ARGV[1]) " +
+            "local capacity = tonumber(ARGV[2]) " +
+            "local requested = tonumber(ARGV[3]) " +
+            "local t = redis.call('TIME') " +
+            "local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000) " +
+            "local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'ts') " +
+            "local tokens = tonumber(bucket[1]) or capacity " +
+            "local ts = tonumber(bucket[2]) or now " +
+            "tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate / 1000) " +
+            "local granted = math.min(requested, math.floor(tokens)) " +
+            "tokens = tokens - granted " +
+            "redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now)) " +
+            "redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / rate * 1000) + 1000) " +
+            "return granted",
+            Long.class);
+
+    /**
+     * 本地预取的令牌
+     */
+    private final Map<String, LocalPermits> localPermits = new ConcurrentHashMap<>();
+
+    /**
+     * 尝试获取1个令牌
+     *
+     * @param key 限流key
+     * @param permitsPerSecond 整个集群每秒允许的请求数
+     * @param batchSize 每次从Redis预取的令牌数
+     * @return true-获取成功 false-被限流
+     * @throws org.springframework.dao.DataAccessException Redis不可用
+     */
+    public boolean tryAcquire(String key, double permitsPerSecond, int batchSize) {
+        LocalPermits permits = localPermits.computeIfAbsent(key, k -> new LocalPermits());
+        while (true) {
+            if (permits.tryTake()) {
+                return true;
+            }
+            synchronized (permits) {
+                if (permits.isUsable()) {
+                    continue;
+                }
+                int granted = fetch(key, permitsPerSecond, batchSize);
+                if (granted <= 0) {
+                    return false;
+                }
+                permits.refill(granted);
+            }
+        }
+    }
+
+    /**
+     * 尝试获取1个令牌（响应式），参数同 {@link #tryAcquire}
+     * 预取到的令牌被并发请求抢光时直接判定为限流，不再重复预取
+     *
+     * @return Redis不可用时以错误结束
+     */
+    public Mono<Boolean> tryAcquireReactive(String key, double permitsPerSecond, int batchSize) {
+        LocalPermits permits = localPermits.computeIfAbsent(key, k -> new LocalPermits());
+        if (permits.tryTake()) {
+            return Mono.just(true);
+        }
+        return permits.refillShared(() -> fetchReactive(key, permitsPerSecond, batchSize))
+                .map(granted -> granted > 0 && permits.tryTake());
+    }
+
+    private Mono<Integer> fetchReactive(String key, double permitsPerSecond, int batchSize) {
+        return reactiveRedisTemplate.execute(
+                        TOKEN_BUCKET_SCRIPT,
+                        List.of(KEY_PREFIX + key),
+                        List.of(String.valueOf(permitsPerSecond), String.valueOf(permitsPerSecond),
+                                String.valueOf(Math.max(1, batchSize))))
+                .next()
+                .map(Long::intValue)
+                .defaultIfEmpty(0)
+                .doOnNext(granted -> log.debug("预取集群令牌: key={}, granted={}", key, granted));
+    }
+
+    private int fetch(String key, double permitsPerSecond, int batchSize) {
+        Long granted = redisTemplate.execute(
+                TOKEN_BUCKET_SCRIPT,
+                List.of(KEY_PREFIX + key),
+                String.valueOf(permitsPerSecond),
+                String.valueOf(permitsPerSecond),
+                String.valueOf(Math.max(1, batchSize))
+        );
+        log.debug("预取集群令牌: key={}, granted={}", key, granted);
+        return granted != null ? granted.intValue() : 0;
+    }
+
+    /**
+     * 本地令牌
+     */
+    private static class LocalPermits {
+
+        private final AtomicInteger available = new AtomicInteger();
+
+        private volatile long expireAt;
+
+        /**
+         * 在途的响应式预取
+         */
+        private final AtomicReference<Mono<Integer>> pendingFetch = new AtomicReference<>();
+
+        boolean tryTake() {
+            if (System.currentTimeMillis() > expireAt) {
+                return false;
+            }
+            int current;
+            do {
+                current = available.get();
+                if (current <= 0) {
+                    return false;
+                }
+            } while (!available.compareAndSet(current, current - 1));
+            return true;
+        }
+
+        boolean isUsable() {
+            return available.get() > 0 && System.currentTimeMillis() <= expireAt;
+        }
+
+        /**
+         * 共享同一个在途预取：第一个请求发起，其余请求订阅同一个结果
+         */
+        Mono<Integer> refillShared(Supplier<Mono<Integer>> fetcher) {
+            Mono<Integer> pending = pendingFetch.get();
+            if (pending != null) {
+                return pending;
+            }
+            Mono<Integer> fetch = Mono.defer(fetcher)
+                    .doOnNext(granted -> {
+                        if (granted > 0) {
+                            refill(granted);
+                        }
+                    })
+                    .doFinally(signal -> pendingFetch.set(null))
+                    .cache();
+            if (pendingFetch.compareAndSet(null, fetch)) {
+                return fetch;
+            }
+            pending = pendingFetch.get();
+            return pending != null ? pending : fetch;
+        }
+
+        void refill(int granted) {
+            // 过期未用完的令牌直接作废
+            available.set(granted);
+            expireAt = System.currentTimeMillis() + LOCAL_PERMIT_TTL_MILLIS;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.octo.seckill.service;
+
+import com.octo.idgen.SnowflakeIdGenerator;
+import com.octo.seckill.common.Result;
+import com.octo.seckill.dto.SeckillMessage;
+import com.octo.seckill.dto.SeckillRequest;
+import com.octo.seckill.entity.SeckillActivity;
+import com.octo.seckill.mq.SeckillMessageProducer;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 响应式秒杀服务（seckill.reactive.enabled=true 时生效）
+ *
+ * 面试要点：为什么阻塞版接口在Redis和CPU都不忙时就扛不住了？
+ * - 每个请求从进入到返回一直占着一个Tomcat线程，期间多次同步等待Redis往返
+ * - 线程池（默认200）被等待I/O的请求占满后，新请求只能排队，吞吐量 ≈ 线程数 / 单请求耗时
+ *
+ * 响应式版本：
+ * 1. 流程与 {@link SeckillService#doSeckill} 完全一致，返回相同的 {@link Result}
+ * 2. 等候室领号、准入脚本、清除旧结果走响应式Lettuce命令，等待Redis期间不占用任何线程
+ * 3. 发送MQ只放入内存缓冲区，由发送线程异步等待Broker确认
+ * 4. 少量阻塞操作（活动缓存未命中回源、售罄广播、缓冲区满落盘、撤销准入）切换到弹性线程池，不阻塞事件循环
+ * 5. 在途请求只是内存中的回调链，少量固定的事件循环线程即可支撑数万并发请求
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "seckill.reactive", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ReactiveSeckillService {
+
+    private final ActivityCacheService activityCacheService;
+    private final StockCacheService stockCacheService;
+    private final SeckillMessageProducer messageProducer;
+    private final WaitingRoomService waitingRoomService;
+    private final SeckillResultService resultService;
+    private final SeckillMetrics metrics;
+    private final SnowflakeIdGenerator idGenerator;
+
+    /**
+     * 执行秒杀
+     *
+     * @param request 秒杀请求
+     * @return 秒杀结果
+     */
+    public Mono<Result<String>> doSeckill(SeckillRequest request) {
+        Long userId = request.getUserId();
+        Long activityId = request.getActivityId();
+        return Mono.defer(() -> {
+            Timer.Sample sample = metrics.startRequest();
+            return executeSeckill(userId, activityId)
+                    .doOnNext(result -> metrics.stopRequest(sample, activityId, result.getCode()));
+        });
+    }
+
+    private Mono<Result<String>> executeSeckill(Long userId, Long activityId) {
+        log.info("秒杀请求: userId={}, activityId={}", userId, activityId);
+
+        // 1. 校验活动状态（本地缓存，未命中时回源）
+        return metrics.record(SeckillMetrics.STAGE_ACTIVITY_LOOKUP, activityId,
+                        activityCacheService.getActivityReactive(activityId))
+                .flatMap(activity -> enterWaitingRoom(activity, userId))
+                .switchIfEmpty(Mono.fromSupplier(() -> Result.fail("活动不存在")));
+    }
+
+    private Mono<Result<String>> enterWaitingRoom(SeckillActivity activity, Long userId) {
+        Long activityId = activity.getId();
+        if (!activity.isActive()) {
+            return Mono.just(activity.getStatus() == 0 ? Result.activityNotStart() : Result.activityEnded());
+        }
+
+        // 2. 本地售罄标记，售罄后直接拒绝，无任何I/O
+        if (activityCacheService.isSoldOut(activityId)) {
+            return Mono.just(Result.soldOut());
+        }
+
+        // 3. 进入等候室领取排队号，只有前 库存×k 个排队号进入下单流程
+        return metrics.record(SeckillMetrics.STAGE_WAITING_ROOM, activityId,
+                        waitingRoomService.enqueueReactive(activity, userId))
+                .flatMap(position -> position == WaitingRoomService.QUEUE_FULL ?
+                        Mono.just(Result.notSelected()) :
+                        admit(activity, userId));
+    }
+
+    private Mono<Result<String>> admit(SeckillActivity activity, Long userId) {
+        Long activityId = activity.getId();
+
+        // 4. 准入前生成订单号：生成失败（如workerId租约不可用）时尚未扣减任何库存，无需撤销
+        String orderNo;
+        try {
+            orderNo = idGenerator.nextIdString();
+        } catch (Exception e) {
+            log.error("订单号生成失败: userId={}, activityId={}", userId, activityId, e);
+            return Mono.just(Result.systemBusy());
+        }
+
+        // 5. Lua脚本一次往返完成：防重校验 + 库存判断 + 预扣减 + 置位已秒杀位图
+        return metrics.record(SeckillMetrics.STAGE_ADMISSION, activityId,
+                        stockCacheService.tryAdmitReactive(activity, userId))
+                .flatMap(admitResult -> {
+                    if (admitResult == StockCacheService.ADMIT_REPEAT) {
+                        return Mono.just(Result.repeatSeckill());
+                    }
+                    if (admitResult == StockCacheService.ADMIT_SOLD_OUT) {
+                        // 库存已扣完，广播售罄标记（只在本节点首次发现时发布）
+                        return Mono.fromRunnable(() -> stockCacheService.markSoldOut(activityId))
+                                .subscribeOn(Schedulers.boundedElastic())
+                                .thenReturn(Result.soldOut());
+                    }
+                    if (admitResult != StockCacheService.ADMIT_SUCCESS) {
+                        // 库存key未预热或已过期，不是售罄，不打标记
+                        log.warn("库存未就绪: activityId={}", activityId);
+                        return Mono.just(Result.systemBusy());
+                    }
+                    return publish(activity, userId, orderNo);
+                });
+    }
+
+    private Mono<Result<String>> publish(SeckillActivity activity, Long userId, String orderNo) {
+        Long activityId = activity.getId();
+
+        // 6. 发送MQ消息，异步创建订单（放入发送缓冲区即完成，不等待Broker确认）
+        SeckillMessage message = SeckillMessage.builder()
+                .userId(userId)
+                .activityId(activityId)
+                .productId(activity.getProductId())
+                .seckillPrice(activity.getSeckillPrice())
+                .orderNo(orderNo)
+                .build();
+
+        // 下单失败撤销准入后允许重新抢购，先清除上一次的失败结果
+        return resultService.clearReactive(activityId, userId)
+                .then(Mono.defer(() -> metrics.record(SeckillMetrics.STAGE_MQ_PUBLISH, activityId,
+                        messageProducer.sendSeckillMessageReactive(message))))
+                .then(Mono.fromSupplier(() -> {
+                    log.info("秒杀成功，订单排队中: userId={}, orderNo={}", userId, orderNo);
+                    return Result.success("秒杀成功，订单排队中", orderNo);
+                }))
+                .onErrorResume(e -> {
+                    // 清除旧结果失败，或缓冲区已满且落盘失败：撤销准入，不能让已扣减的库存悬空
+                    log.error("秒杀消息发送失败，撤销准入: userId={}, activityId={}", userId, activityId, e);
+                    return Mono.fromRunnable(() -> stockCacheService.cancelAdmission(activityId, userId))
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .thenReturn(Result.systemBusy());
+                });
+    }
+}
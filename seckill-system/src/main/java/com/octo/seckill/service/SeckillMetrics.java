@@ -0,0 +1,137 @@
+package com.octo.seckill.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 秒杀链路分阶段指标
+ *
+ * 大促时判断瓶颈在Redis、MySQL还是RabbitMQ：
+ *   seckill.stage{stage, activity}    各阶段耗时（百分位直方图见 management.metrics.distribution）
+ *     - activity_lookup  活动本地缓存查询（含未命中时回源）
+ *     - activity_load    缓存未命中时的数据库 selectById
+ *     - waiting_room     等候室领号（Redis）
+ *     - admission        准入Lua脚本：防重 + 扣库存（Redis）
+ *     - mq_publish       请求线程投递到发送缓冲区
+ *     - mq_confirm       后台线程发送到收到Broker确认（RabbitMQ）
+ *     - order_tx         消费端建单事务（MySQL），批量消费时为整批
+ *   seckill.request{activity, code}   整个秒杀请求的耗时，按返回码区分结果
+ *   seckill.order{activity, result}   消费端建单结果计数
+ *   seckill.mq.spilled{activity}      落盘到本地溢出文件的消息数
+ *
+ * activity标签取活动ID，同时进行的活动数量有限，不会造成标签基数膨胀
+ */
+@Component
+@RequiredArgsConstructor
+public class SeckillMetrics {
+
+    public static final String STAGE_ACTIVITY_LOOKUP = "activity_lookup";
+    public static final String STAGE_ACTIVITY_LOAD = "activity_load";
+    public static final String STAGE_WAITING_ROOM = "waiting_room";
+    public static final String STAGE_ADMISSION = "admission";
+    public static final String STAGE_MQ_PUBLISH = "mq_publish";
+    public static final String STAGE_MQ_CONFIRM = "mq_confirm";
+    public static final String STAGE_ORDER_TX = "order_tx";
+
+    private final MeterRegistry registry;
+
+    /**
+     * 记录有返回值的阶段耗时
+     */
+    public <T> T record(String stage, Long activityId, Supplier<T> action) {
+        return stageTimer(stage, activityId).record(action);
+    }
+
+    /**
+     * 记录无返回值的阶段耗时
+     */
+    public void record(String stage, Long activityId, Runnable action) {
+        stageTimer(stage, activityId).record(action);
+    }
+
+    /**
+     * 记录异步阶段耗时：从订阅开始到完成（成功、失败或取消）
+     */
+    public <T> Mono<T> record(String stage, Long activityId, Mono<T> action) {
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            return action.doFinally(signal -> record(stage, activityId, System.nanoTime() - startNanos));
+        });
+    }
+
+    /**
+     * 记录已测得的阶段耗时
+     */
+    public void record(String stage, Long activityId, long durationNanos) {
+        stageTimer(stage, activityId).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 开始计时整个请求
+     */
+    public Timer.Sample startRequest() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * 结束计时整个请求
+     *
+     * @param code 返回码 {@link com.octo.seckill.common.Result#getCode()}
+     */
+    public void stopRequest(Timer.Sample sample, Long activityId, Integer code) {
+        sample.stop(Timer.builder("seckill.request")
+                .description("秒杀请求耗时")
+                .tag("activity", activityTag(activityId))
+                .tag("code", String.valueOf(code))
+                .register(registry));
+    }
+
+    /**
+     * 消费端建单结果计数
+     */
+    public void countOrder(Long activityId, String result) {
+        countOrder(activityId, result, 1);
+    }
+
+    public void countOrder(Long activityId, String result, int count) {
+        if (count <= 0) {
+            return;
+        }
+        Counter.builder("seckill.order")
+                .description("消费端建单结果")
+                .tag("activity", activityTag(activityId))
+                .tag("result", result)
+                .register(registry)
+                .increment(count);
+    }
+
+    /**
+     * 落盘消息计数
+     */
+    public void countSpilled(Long activityId) {
+        Counter.builder("seckill.mq.spilled")
+                .description("写入本地溢出文件的秒杀消息数")
+                .tag("activity", activityTag(activityId))
+                .register(registry)
+                .increment();
+    }
+
+    private Timer stageTimer(String stage, Long activityId) {
+        return Timer.builder("seckill.stage")
+                .description("秒杀链路分阶段耗时")
+                .tag("stage", stage)
+                .tag("activity", activityTag(activityId))
+                .register(registry);
+    }
+
+    private String activityTag(Long activityId) {
+        return activityId != null ? String.valueOf(activityId) : "none";
+    }
+}
@@ -0,0 +1,134 @@
+package com.octo.seckill.service;
+
+import com.octo.seckill.dto.SeckillMessage;
+import com.octo.seckill.entity.SeckillOrder;
+import com.octo.seckill.mapper.SeckillActivityMapper;
+import com.octo.seckill.mapper.SeckillOrderMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 秒杀订单落库服务
+ *
+ * 供MQ消费者调用，分为单条和批量两种模式：
+ *
+ * 1. 单条模式
+ *    - 幂等检查 -> 乐观锁扣减1件库存 -> 插入订单，一条消息一个事务
+ *
+ * 2. 批量模式（同一活动的一批消息一个事务）
+ *    - 一次 IN 查询完成幂等检查
+ *    - 一条 UPDATE 扣减k件库存（available_stock = available_stock - k）
+ *    - 一条多行 INSERT 写入订单
+ *    - 库存不足或唯一索引冲突时整批回滚，由调用方降级为逐条处理
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SeckillOrderService {
+
+    private final SeckillOrderMapper orderMapper;
+    private final SeckillActivityMapper activityMapper;
+
+    /**
+     * 单条创建订单结果
+     */
+    public enum CreateResult {
+        /** 创建成功 */
+        CREATED,
+        /** 订单已存在（重复消费） */
+        DUPLICATED,
+        /** 数据库库存不足 */
+        SOLD_OUT
+    }
+
+    /**
+     * 单条创建订单
+     *
+     * @return 创建结果，非CREATED时调用方需归还Redis库存
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public CreateResult createOrder(SeckillMessage message) {
+        // 1. 幂等性检查 - 是否已创建订单
+        int count = orderMapper.countByUserAndActivity(message.getUserId(), message.getActivityId());
+        if (count > 0) {
+            log.warn("重复消费，订单已存在: userId={}, activityId={}",
+                    message.getUserId(), message.getActivityId());
+            return CreateResult.DUPLICATED;
+        }
+
+        // 2. 数据库扣减库存（乐观锁）
+        int updated = activityMapper.deductStock(message.getActivityId());
+        if (updated == 0) {
+            log.warn("数据库库存不足: activityId={}", message.getActivityId());
+            return CreateResult.SOLD_OUT;
+        }
+
+        // 3. 创建订单
+        orderMapper.insert(toOrder(message));
+        log.info("秒杀订单创建成功: orderNo={}, userId={}", message.getOrderNo(), message.getUserId());
+        return CreateResult.CREATED;
+    }
+
+    /**
+     * 批量创建同一活动的订单
+     *
+     * @param activityId 活动ID
+     * @param messages 该活动的一批消息
+     * @return 重复下单而被跳过的消息（调用方需归还Redis库存）
+     * @throws IllegalStateException 数据库库存不足，整批回滚
+     * @throws org.springframework.dao.DuplicateKeyException 唯一索引冲突，整批回滚
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public List<SeckillMessage> createOrdersInBatch(Long activityId, List<SeckillMessage> messages) {
+        List<SeckillMessage> duplicated = new ArrayList<>();
+        List<SeckillOrder> orders = new ArrayList<>(messages.size());
+
+        // 1. 幂等性检查 - 一次IN查询，同时剔除批内重复
+        Set<Long> userIds = new HashSet<>();
+        for (SeckillMessage message : messages) {
+            userIds.add(message.getUserId());
+        }
+        Set<Long> existing = new HashSet<>(orderMapper.selectExistingUserIds(activityId, userIds));
+        for (SeckillMessage message : messages) {
+            if (existing.add(message.getUserId())) {
+                orders.add(toOrder(message));
+            } else {
+                duplicated.add(message);
+            }
+        }
+        if (orders.isEmpty()) {
+            return duplicated;
+        }
+
+        // 2. 一条UPDATE扣减k件库存
+        int updated = activityMapper.deductStockBatch(activityId, orders.size());
+        if (updated == 0) {
+            throw new IllegalStateException("数据库库存不足以批量扣减: activityId=" + activityId
+                    + ", count=" + orders.size());
+        }
+
+        // 3. 多行插入订单
+        orderMapper.insertBatch(orders);
+        log.info("批量创建秒杀订单成功: activityId={}, count={}, duplicated={}",
+                activityId, orders.size(), duplicated.size());
+        return duplicated;
+    }
+
+    private SeckillOrder toOrder(SeckillMessage message) {
+        SeckillOrder order = new SeckillOrder();
+        order.setOrderNo(message.getOrderNo());
+        order.setUserId(message.getUserId());
+        order.setActivityId(message.getActivityId());
+        order.setProductId(message.getProductId());
+        order.setSeckillPrice(message.getSeckillPrice());
+        order.setStatus(0); // 待支付
+        return order;
+    }
+}
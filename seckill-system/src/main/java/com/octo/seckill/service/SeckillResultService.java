@@ -0,0 +1,201 @@
+package com.octo.seckill.service;
+
+import com.alibaba.fastjson2.JSON;
+import com.octo.seckill.common.Result;
+import com.octo.seckill.dto.SeckillMessage;
+import com.octo.seckill.dto.SeckillResult;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 秒杀结果推送服务
+ *
+ * 面试要点：客户端轮询结果把压力打到数据库怎么办？
+ *
+ * 1. 结果写Redis
+ *    - 消费者落库后把最终结果（成功+订单号 / 失败原因）写入短期Redis记录
+ *    - 结果查询优先读Redis，不再每次 count 数据库
+ *
+ * 2. 长轮询
+ *    - 客户端请求挂起在 DeferredResult 上，不占用Tomcat线程
+ *    - 消费者写入结果后通过Redis Pub/Sub通知所有节点，持有该请求的节点立即返回
+ *    - 一个等待中的客户端只需一次请求，而不是几十次轮询
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SeckillResultService implements MessageListener {
+
+    private final StringRedisTemplate redisTemplate;
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    @Value("${seckill.result.expire-seconds}")
+    private long expireSeconds;
+
+    @Value("${seckill.result.long-poll-timeout}")
+    private long longPollTimeout;
+
+    @Value("${seckill.result.channel}")
+    private String resultChannel;
+
+    private static final String RESULT_PREFIX = "seckill:result:";
+
+    /**
+     * 等待结果的长轮询请求，key为 {activityId}:{userId}
+     */
+    private final Map<String, Set<DeferredResult<Result<String>>>> waiters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(resultChannel));
+    }
+
+    /**
+     * 记录下单成功
+     */
+    public void saveSuccess(SeckillMessage message) {
+        saveSuccess(List.of(message));
+    }
+
+    /**
+     * 批量记录下单成功（管道写入）
+     */
+    public void saveSuccess(List<SeckillMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (SeckillMessage message : messages) {
+                SeckillResult result = SeckillResult.builder()
+                        .status(SeckillResult.STATUS_SUCCESS)
+                        .orderNo(message.getOrderNo())
+                        .build();
+                write(conn, message, result);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 记录下单失败
+     */
+    public void saveFailure(SeckillMessage message, String reason) {
+        SeckillResult result = SeckillResult.builder()
+                .status(SeckillResult.STATUS_FAILED)
+                .reason(reason)
+                .build();
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            write((StringRedisConnection) connection, message, result);
+            return null;
+        });
+    }
+
+    /**
+     * 清除上一次的最终结果
+     * 用户下单失败后重新准入时调用，避免查询到上一次的失败结果
+     */
+    public void clear(Long activityId, Long userId) {
+        redisTemplate.delete(RESULT_PREFIX + activityId + ":" + userId);
+    }
+
+    /**
+     * 清除上一次的最终结果（响应式）
+     */
+    public Mono<Void> clearReactive(Long activityId, Long userId) {
+        return reactiveRedisTemplate.delete(RESULT_PREFIX + activityId + ":" + userId).then();
+    }
+
+    private void write(StringRedisConnection conn, SeckillMessage message, SeckillResult result) {
+        String waiterKey = message.getActivityId() + ":" + message.getUserId();
+        conn.setEx(RESULT_PREFIX + waiterKey, expireSeconds, JSON.toJSONString(result));
+        conn.publish(resultChannel, waiterKey);
+    }
+
+    /**
+     * 查询最终结果
+     *
+     * @return 消费者尚未处理完（或结果已过期）时返回null
+     */
+    public Result<String> getResult(Long activityId, Long userId) {
+        String value = redisTemplate.opsForValue().get(RESULT_PREFIX + activityId + ":" + userId);
+        return value != null ? toResult(JSON.parseObject(value, SeckillResult.class)) : null;
+    }
+
+    /**
+     * 挂起请求等待最终结果
+     *
+     * @param onTimeout 超时后的兜底结果
+     */
+    public DeferredResult<Result<String>> await(Long activityId, Long userId, Supplier<Result<String>> onTimeout) {
+        String waiterKey = activityId + ":" + userId;
+        DeferredResult<Result<String>> deferred = new DeferredResult<>(longPollTimeout);
+        deferred.onTimeout(() -> deferred.setResult(onTimeout.get()));
+        deferred.onCompletion(() -> waiters.computeIfPresent(waiterKey, (k, set) -> {
+            set.remove(deferred);
+            return set.isEmpty() ? null : set;
+        }));
+
+        waiters.compute(waiterKey, (k, set) -> {
+            Set<DeferredResult<Result<String>>> target = set != null ? set : ConcurrentHashMap.newKeySet();
+            target.add(deferred);
+            return target;
+        });
+
+        // 注册后再查一次，防止结果在注册前已写入而错过通知
+        Result<String> result = getResult(activityId, userId);
+        if (result != null) {
+            deferred.setResult(result);
+        }
+        return deferred;
+    }
+
+    /**
+     * 接收结果通知，唤醒本节点上等待的请求
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String waiterKey = new String(message.getBody(), StandardCharsets.UTF_8);
+        Set<DeferredResult<Result<String>>> pending = waiters.remove(waiterKey);
+        if (pending == null || pending.isEmpty()) {
+            return;
+        }
+        String value = redisTemplate.opsForValue().get(RESULT_PREFIX + waiterKey);
+        if (value == null) {
+            return;
+        }
+        Result<String> result = toResult(JSON.parseObject(value, SeckillResult.class));
+        for (DeferredResult<Result<String>> deferred : pending) {
+            deferred.setResult(result);
+        }
+        log.debug("推送秒杀结果: key={}, waiters={}", waiterKey, pending.size());
+    }
+
+    private Result<String> toResult(SeckillResult result) {
+        if (result.getStatus() == SeckillResult.STATUS_SUCCESS) {
+            return Result.success("秒杀成功", result.getOrderNo());
+        }
+        return Result.fail(result.getReason());
+    }
+}
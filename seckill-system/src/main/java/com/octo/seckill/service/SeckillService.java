@@ -1,19 +1,17 @@
 package com.octo.seckill.service;
 
+import com.octo.idgen.SnowflakeIdGenerator;
 import com.octo.seckill.common.Result;
 import com.octo.seckill.dto.SeckillMessage;
 import com.octo.seckill.dto.SeckillRequest;
 import com.octo.seckill.entity.SeckillActivity;
-import com.octo.seckill.mapper.SeckillActivityMapper;
 import com.octo.seckill.mapper.SeckillOrderMapper;
 import com.octo.seckill.mq.SeckillMessageProducer;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
-
-import java.util.UUID;
-import java.util.concurrent.TimeUnit;
+import org.springframework.web.context.request.async.DeferredResult;
 
 /**
  * 秒杀核心服务
@@ -21,12 +19,13 @@ import java.util.concurrent.TimeUnit;
  * 秒杀流程设计（面试重点）：
  * 
  * 1. 请求进入 -> 接口限流（令牌桶）
- * 2. 校验活动状态
- * 3. 校验用户是否已秒杀（Redis + 数据库双重校验）
- * 4. 预扣减Redis库存（Lua脚本保证原子性）
- * 5. 发送MQ消息（异步削峰）
- * 6. 立即返回"排队中"
- * 7. 消费者异步创建订单（数据库乐观锁扣减库存）
+ * 2. 校验活动状态（JVM本地缓存）
+ * 3. 本地售罄标记快速拒绝（Redis Pub/Sub 全节点广播）
+ * 4. 等候室排队（只放行 库存×k 个排队号，其余立即返回未抢到）
+ * 5. 秒杀准入（单个Lua脚本：防重校验 + 预扣减库存 + 标记用户，一次Redis往返）
+ * 6. 发送MQ消息（异步削峰）
+ * 7. 立即返回"排队中"
+ * 8. 消费者异步创建订单（数据库乐观锁扣减库存）
  * 
  * 库存超卖解决方案总结：
  * 
@@ -47,17 +46,14 @@ import java.util.concurrent.TimeUnit;
 @RequiredArgsConstructor
 public class SeckillService {
 
-    private final SeckillActivityMapper activityMapper;
+    private final ActivityCacheService activityCacheService;
     private final SeckillOrderMapper orderMapper;
     private final StockCacheService stockCacheService;
-    private final DistributedLockService lockService;
     private final SeckillMessageProducer messageProducer;
-    private final StringRedisTemplate redisTemplate;
-
-    /**
-     * 已秒杀用户缓存前缀
-     */
-    private static final String SECKILL_USER_PREFIX = "seckill:user:";
+    private final WaitingRoomService waitingRoomService;
+    private final SeckillResultService resultService;
+    private final SeckillMetrics metrics;
+    private final SnowflakeIdGenerator idGenerator;
 
     /**
      * 执行秒杀
@@ -66,13 +62,18 @@ public class SeckillService {
      * @return 秒杀结果
      */
     public Result<String> doSeckill(SeckillRequest request) {
-        Long userId = request.getUserId();
-        Long activityId = request.getActivityId();
+        Timer.Sample sample = metrics.startRequest();
+        Result<String> result = executeSeckill(request.getUserId(), request.getActivityId());
+        metrics.stopRequest(sample, request.getActivityId(), result.getCode());
+        return result;
+    }
 
+    private Result<String> executeSeckill(Long userId, Long activityId) {
         log.info("秒杀请求: userId={}, activityId={}", userId, activityId);
 
-        // 1. 校验活动状态
-        SeckillActivity activity = activityMapper.selectById(activityId);
+        // 1. 校验活动状态（本地缓存，不访问数据库）
+        SeckillActivity activity = metrics.record(SeckillMetrics.STAGE_ACTIVITY_LOOKUP, activityId,
+                () -> activityCacheService.getActivity(activityId));
         if (activity == null) {
             return Result.fail("活动不存在");
         }
@@ -80,55 +81,69 @@ public class SeckillService {
             return activity.getStatus() == 0 ? Result.activityNotStart() : Result.activityEnded();
         }
 
-        // 2. 快速判断库存（内存标记，可选优化）
-        if (!stockCacheService.hasStock(activityId)) {
+        // 2. 本地售罄标记，售罄后直接拒绝，无任何I/O
+        if (activityCacheService.isSoldOut(activityId)) {
+            return Result.soldOut();
+        }
+
+        // 3. 进入等候室领取排队号，只有前 库存×k 个排队号进入下单流程
+        long position = metrics.record(SeckillMetrics.STAGE_WAITING_ROOM, activityId,
+                () -> waitingRoomService.enqueue(activity, userId));
+        if (position == WaitingRoomService.QUEUE_FULL) {
+            return Result.notSelected();
+        }
+
+        // 4. 准入前生成订单号：生成失败（如workerId租约不可用）时尚未扣减任何库存，无需撤销
+        String orderNo;
+        try {
+            orderNo = generateOrderNo();
+        } catch (Exception e) {
+            log.error("订单号生成失败: userId={}, activityId={}", userId, activityId, e);
+            return Result.systemBusy();
+        }
+
+        // 5. Lua脚本一次往返完成：防重校验 + 库存判断 + 预扣减 + 置位已秒杀位图
+        //    不再加分布式锁、不再查库，唯一索引(user_id, activity_id)作为最终兜底
+        long admitResult = metrics.record(SeckillMetrics.STAGE_ADMISSION, activityId,
+                () -> stockCacheService.tryAdmit(activityId, userId));
+        if (admitResult == StockCacheService.ADMIT_REPEAT) {
+            return Result.repeatSeckill();
+        }
+        if (admitResult == StockCacheService.ADMIT_SOLD_OUT) {
+            // 库存已扣完，广播售罄标记
+            stockCacheService.markSoldOut(activityId);
             return Result.soldOut();
         }
+        if (admitResult != StockCacheService.ADMIT_SUCCESS) {
+            // 库存key未预热或已过期，不是售罄，不打标记
+            log.warn("库存未就绪: activityId={}", activityId);
+            return Result.systemBusy();
+        }
+
+        // 6. 发送MQ消息，异步创建订单（放入发送缓冲区即返回，不等待Broker确认）
+        SeckillMessage message = SeckillMessage.builder()
+                .userId(userId)
+                .activityId(activityId)
+                .productId(activity.getProductId())
+                .seckillPrice(activity.getSeckillPrice())
+                .orderNo(orderNo)
+                .build();
+
+        try {
+            // 下单失败撤销准入后允许重新抢购，清除上一次的失败结果
+            resultService.clear(activityId, userId);
+            metrics.record(SeckillMetrics.STAGE_MQ_PUBLISH, activityId,
+                    () -> messageProducer.sendSeckillMessage(message));
+        } catch (Exception e) {
+            // 清除旧结果失败，或缓冲区已满且落盘失败：撤销准入，不能让已扣减的库存悬空
+            log.error("秒杀消息发送失败，撤销准入: userId={}, activityId={}", userId, activityId, e);
+            stockCacheService.cancelAdmission(activityId, userId);
+            return Result.systemBusy();
+        }
 
-        // 3. 使用分布式锁，防止同一用户重复秒杀
-        return lockService.executeWithUserActivityLock(userId, activityId, () -> {
-            
-            // 4. 校验用户是否已秒杀（Redis缓存 + 数据库双重检查）
-            String userSeckillKey = SECKILL_USER_PREFIX + activityId + ":" + userId;
-            if (Boolean.TRUE.equals(redisTemplate.hasKey(userSeckillKey))) {
-                return Result.repeatSeckill();
-            }
-            
-            // 数据库二次校验
-            int orderCount = orderMapper.countByUserAndActivity(userId, activityId);
-            if (orderCount > 0) {
-                // 缓存用户已秒杀状态
-                redisTemplate.opsForValue().set(userSeckillKey, "1", 24, TimeUnit.HOURS);
-                return Result.repeatSeckill();
-            }
-
-            // 5. Redis预扣减库存
-            boolean deducted = stockCacheService.deductStock(activityId);
-            if (!deducted) {
-                return Result.soldOut();
-            }
-
-            // 6. 生成订单号
-            String orderNo = generateOrderNo(userId, activityId);
-
-            // 7. 发送MQ消息，异步创建订单
-            SeckillMessage message = SeckillMessage.builder()
-                    .userId(userId)
-                    .activityId(activityId)
-                    .productId(activity.getProductId())
-                    .seckillPrice(activity.getSeckillPrice())
-                    .orderNo(orderNo)
-                    .build();
-            
-            messageProducer.sendSeckillMessage(message);
-
-            // 8. 标记用户已秒杀
-            redisTemplate.opsForValue().set(userSeckillKey, "1", 24, TimeUnit.HOURS);
-
-            log.info("秒杀成功，订单排队中: userId={}, orderNo={}", userId, orderNo);
-            
-            return Result.success("秒杀成功，订单排队中", orderNo);
-        });
+        log.info("秒杀成功，订单排队中: userId={}, orderNo={}", userId, orderNo);
+
+        return Result.success("秒杀成功，订单排队中", orderNo);
     }
 
     /**
@@ -139,32 +154,53 @@ public class SeckillService {
      * @return 订单号或排队状态
      */
     public Result<String> getSeckillResult(Long userId, Long activityId) {
-        // 查询订单
+        // 消费者已写入最终结果，直接返回，不查数据库
+        Result<String> finalResult = resultService.getResult(activityId, userId);
+        if (finalResult != null) {
+            return finalResult;
+        }
+
+        // 已准入但结果未写入：订单还在MQ中排队，无需查库
+        Long position = waitingRoomService.getPosition(activityId, userId);
+        if (stockCacheService.isAdmitted(activityId, userId)) {
+            return position != null ?
+                    Result.success("排队中，排队号：" + position + "，请稍后查询") :
+                    Result.success("排队中，请稍后查询");
+        }
+
+        // Redis记录已过期时以数据库为准
         int count = orderMapper.countByUserAndActivity(userId, activityId);
-        
         if (count > 0) {
             return Result.success("秒杀成功");
         }
-        
-        // 检查是否在排队
-        String userSeckillKey = SECKILL_USER_PREFIX + activityId + ":" + userId;
-        if (Boolean.TRUE.equals(redisTemplate.hasKey(userSeckillKey))) {
-            return Result.success("排队中，请稍后查询");
+
+        // 领到了排队号但未抢到库存
+        if (position != null) {
+            return Result.soldOut();
         }
         
         return Result.fail("未参与秒杀");
     }
 
+    /**
+     * 长轮询等待秒杀结果
+     * 已有最终结果或未参与秒杀时立即返回，否则挂起直到消费者推送结果或超时
+     */
+    public DeferredResult<Result<String>> waitSeckillResult(Long userId, Long activityId) {
+        Result<String> finalResult = resultService.getResult(activityId, userId);
+        if (finalResult != null || !stockCacheService.isAdmitted(activityId, userId)) {
+            DeferredResult<Result<String>> deferred = new DeferredResult<>();
+            deferred.setResult(finalResult != null ? finalResult : getSeckillResult(userId, activityId));
+            return deferred;
+        }
+        return resultService.await(activityId, userId, () -> getSeckillResult(userId, activityId));
+    }
+
     /**
      * 生成订单号
-     * 格式：年月日时分秒 + 活动ID(4位) + 用户ID后4位 + 随机数(4位)
+     * 雪花ID的13位紧凑字符串，趋势递增，订单表唯一索引顺序写入
      */
-    private String generateOrderNo(Long userId, Long activityId) {
-        String timestamp = String.valueOf(System.currentTimeMillis());
-        String activityPart = String.format("%04d", activityId % 10000);
-        String userPart = String.format("%04d", userId % 10000);
-        String randomPart = UUID.randomUUID().toString().substring(0, 4);
-        return timestamp + activityPart + userPart + randomPart;
+    private String generateOrderNo() {
+        return idGenerator.nextIdString();
     }
 }
-
@@ -1,17 +1,34 @@
 package com.octo.seckill.service;
 
+import com.octo.seckill.dto.SeckillMessage;
 import com.octo.seckill.entity.SeckillActivity;
 import com.octo.seckill.mapper.SeckillActivityMapper;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -39,6 +56,22 @@ import java.util.concurrent.TimeUnit;
  * 方案四：Redis Lua脚本
  *   - 将判断和扣减合并为原子操作
  *   - 本项目在deductStock方法中使用
+ *
+ * 热点活动库存分片（seckill.stock.shard.count > 1）：
+ *   - 单个库存key在Redis Cluster下只落在一个分片、一个CPU核心上
+ *   - 预热时将库存均分到N个子key（hash tag分散到不同slot）
+ *   - 请求按用户ID取模选择分片，所属分片为空时探测其他分片
+ *   - 查询库存、定时同步时汇总/重新均分各分片
+ *
+ * 节点库存租约（seckill.stock.mode=lease）：
+ *   - 节点批量租借库存到本地，扣减走 {@link StockLeaseService} 内存CAS
+ *   - 热点库存key的访问次数从每请求一次降为每批一次，已秒杀位仍写Redis位图
+ *   - 活动结束或节点下线时归还未用完的租约
+ *
+ * 已秒杀用户去重：
+ *   - 每活动（分片）一个位图，以用户ID为偏移量，准入脚本内GETBIT/SETBIT原子完成防重
+ *   - 消费端建单失败时通过 {@link #cancelAdmission} 清除用户位，用户可重新抢购
+ *   - 位图过期时间为活动结束时间 + 保留时间，活动结束后自动清理
  */
 @Slf4j
 @Service
@@ -46,11 +79,51 @@ import java.util.concurrent.TimeUnit;
 public class StockCacheService {
 
     private final StringRedisTemplate redisTemplate;
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate;
     private final SeckillActivityMapper activityMapper;
+    private final ActivityCacheService activityCacheService;
+    private final StockLeaseService stockLeaseService;
 
     @Value("${seckill.stock.cache-prefix}")
     private String stockCachePrefix;
 
+    /**
+     * 库存扣减模式：lua-每次请求执行Lua脚本扣减Redis库存 lease-节点租约本地扣减
+     */
+    @Value("${seckill.stock.mode}")
+    private String stockMode;
+
+    private static final String MODE_LEASE = "lease";
+
+    /**
+     * 启动时预热的时间范围（分钟）：只加载该时间内开始的活动
+     */
+    @Value("${seckill.stock.warm-up.horizon-minutes}")
+    private long warmUpHorizonMinutes;
+
+    /**
+     * 活动开始前多少分钟预热库存
+     */
+    @Value("${seckill.stock.warm-up.preload-minutes}")
+    private long preloadMinutes;
+
+    /**
+     * 上一轮对账中Redis与数据库不一致的活动及差值（Redis偏多为正，偏少为负）
+     */
+    private final Map<Long, Integer> suspectedDrift = new ConcurrentHashMap<>();
+
+    /**
+     * 库存分片数，1表示不分片
+     */
+    @Value("${seckill.stock.shard.count}")
+    private int shardCount;
+
+    /**
+     * 活动总库存达到该值才分片（只对热点大促分片）
+     */
+    @Value("${seckill.stock.shard.threshold}")
+    private int shardThreshold;
+
     /**
      * 库存预扣减Lua脚本
      * 
@@ -58,61 +131,375 @@ public class StockCacheService {
      * - 保证判断库存和扣减库存的原子性
      * - 避免先GET再DECR导致的并发问题
      */
-    private static final String DEDUCT_STOCK_SCRIPT = 
+    private static final DefaultRedisScript<Long> DEDUCT_STOCK_SCRIPT = new DefaultRedisScript<>(
             "local stock = redis.call('GET', KEYS[1]) " +
             "if stock and tonumber(stock) > 0 then " +
             "    redis.call('DECR', KEYS[1]) " +
+            "    if #KEYS > 1 then " +
+            "        redis.call('INCR', KEYS[2]) " +
+            "    end " +
             "    return 1 " +
             "else " +
             "    return 0 " +
-            "end";
+            "end",
+            Long.class);
+
+    /**
+     * 已秒杀用户位图前缀
+     * 每个活动（分片模式下每个分片）一个位图，以用户ID为偏移量，1位记录一个用户，
+     * 替代原先每用户一个 seckill:user:{activityId}:{userId} 字符串key：
+     * 百万用户的标记从上百MB的独立key压缩到按最大用户ID计算的 maxUserId/8 字节
+     */
+    private static final String BOUGHT_BITMAP_PREFIX = "seckill:bought:";
+
+    /**
+     * Redis位图最大偏移量（2^32 - 1），用户ID需为非负数且 userId / 分片数 不超过该值
+     */
+    private static final long MAX_BITMAP_OFFSET = (1L << 32) - 1;
+
+    /**
+     * 在途订单计数前缀（与库存key共用hash tag）
+     */
+    private static final String INFLIGHT_PREFIX = "seckill:inflight:";
+
+    /**
+     * 库存key在活动结束后的保留时间
+     */
+    private static final Duration STOCK_EXPIRE_GRACE = Duration.ofHours(1);
+
+    /**
+     * 已秒杀位图在活动结束后的保留时间
+     * 需覆盖消息积压的消费时长，过期后同一用户可再次准入
+     */
+    private static final Duration BOUGHT_BITMAP_EXPIRE_GRACE = Duration.ofHours(24);
+
+    /**
+     * 秒杀准入结果：准入成功 / 库存不足 / 重复秒杀 / 库存key不存在（未预热或已过期，不能当作售罄）
+     */
+    public static final long ADMIT_SUCCESS = 1L;
+    public static final long ADMIT_SOLD_OUT = 0L;
+    public static final long ADMIT_REPEAT = -1L;
+    public static final long ADMIT_NOT_READY = -2L;
+
+    /**
+     * 秒杀准入Lua脚本
+     *
+     * 一次往返内原子完成：是否已秒杀 -> 库存是否充足 -> 扣减库存 -> 标记用户
+     * 替代原先的 分布式锁 + hasKey + 数据库count + 扣减 + set标记 多次往返，
+     * 同一用户的并发请求由Redis单线程串行执行，天然防重，无需再加锁。
+     *
+     * KEYS[1] 库存key，KEYS[2] 已秒杀位图key，KEYS[3] 在途订单计数key
+     * ARGV[1] 用户在位图中的偏移量，ARGV[2] 位图过期时间（秒）
+     * 注意：Redis Cluster下三个key需落在同一slot，三个key共用同一hash tag（{活动ID} 或 {活动ID:分片}）保证
+     * 位图过期时间只在准入成功时设置（次数受库存限制），且已有过期时间时不再重复设置
+     */
+    private static final DefaultRedisScript<Long> ADMIT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GETBIT', KEYS[2], ARGV[1]) == 1 then " +
+            "    return -1 " +
+            "end " +
+            "local stock = redis.call('GET', KEYS[1]) " +
+            "if not stock then " +
+            "    return -2 " +
+            "end " +
+            "if tonumber(stock) <= 0 then " +
+            "    return 0 " +
+            "end " +
+            "redis.call('DECR', KEYS[1]) " +
+            "redis.call('INCR', KEYS[3]) " +
+            "redis.call('SETBIT', KEYS[2], ARGV[1], 1) " +
+            "if redis.call('TTL', KEYS[2]) < 0 then " +
+            "    redis.call('EXPIRE', KEYS[2], ARGV[2]) " +
+            "end " +
+            "return 1",
+            Long.class);
+
+    /**
+     * 对账快照Lua脚本：同一分片的库存和在途计数在一次原子读取中完成，避免两次读取之间的准入/撤销造成假差值
+     * KEYS[1] 库存key，KEYS[2] 在途订单计数key
+     * 返回 {库存, 在途数}，库存key不存在时库存为-1
+     */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> STOCK_SNAPSHOT_SCRIPT = new DefaultRedisScript<>(
+            "local stock = redis.call('GET', KEYS[1]) " +
+            "local inflight = redis.call('GET', KEYS[2]) " +
+            "return {stock and tonumber(stock) or -1, inflight and tonumber(inflight) or 0}",
+            List.class);
+
+    /**
+     * 库存修正Lua脚本：在当前值上增减差值（INCRBY，保留过期时间），不覆盖对账期间的并发扣减
+     * 扣减不会低于0；库存key不存在（已过期）时不修正，也用于归还租约（不会重建无过期时间的库存key）
+     * ARGV[1] 差值，返回实际生效的差值
+     */
+    private static final DefaultRedisScript<Long> ADJUST_STOCK_SCRIPT = new DefaultRedisScript<>(
+            "local stock = redis.call('GET', KEYS[1]) " +
+            "if not stock then " +
+            "    return 0 " +
+            "end " +
+            "local delta = math.max(tonumber(ARGV[1]), -tonumber(stock)) " +
+            "redis.call('INCRBY', KEYS[1], delta) " +
+            "return delta",
+            Long.class);
+
+    /**
+     * 租借库存Lua脚本：从中心库存一次取走最多ARGV[1]件
+     * 返回实际租到的数量，0表示库存已空
+     */
+    private static final DefaultRedisScript<Long> LEASE_STOCK_SCRIPT = new DefaultRedisScript<>(
+            "local stock = tonumber(redis.call('GET', KEYS[1]) or '0') " +
+            "if stock <= 0 then " +
+            "    return 0 " +
+            "end " +
+            "local n = math.min(stock, tonumber(ARGV[1])) " +
+            "redis.call('DECRBY', KEYS[1], n) " +
+            "return n",
+            Long.class);
+
+    /**
+     * 撤销准入Lua脚本：归还库存、扣回在途计数并清除用户位
+     * 仅当用户位原值为1时才归还，避免重复撤销导致库存虚增
+     * ARGV[1] 用户在位图中的偏移量
+     */
+    private static final DefaultRedisScript<Long> CANCEL_ADMISSION_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('SETBIT', KEYS[2], ARGV[1], 0) == 1 then " +
+            "    redis.call('INCR', KEYS[1]) " +
+            "    redis.call('DECR', KEYS[3]) " +
+            "    return 1 " +
+            "end " +
+            "return 0",
+            Long.class);
 
     /**
      * 应用启动时预热库存到Redis
+     * 只加载 horizon-minutes 内开始且尚未结束的活动，历史活动不再加载
      */
     @PostConstruct
     public void warmUpStock() {
         log.info("========== 开始预热秒杀库存到Redis ==========");
-        
-        // 查询所有进行中的秒杀活动
-        List<SeckillActivity> activities = activityMapper.selectList(null);
-        
+        LocalDateTime now = LocalDateTime.now();
+        List<SeckillActivity> activities = activityMapper.selectUpcoming(now, now.plusMinutes(warmUpHorizonMinutes));
+        migrateLegacyKeys(activities);
+        int warmed = warmUp(activities, now);
+        log.info("========== 秒杀库存预热完成: activities={} ==========", warmed);
+    }
+
+    /**
+     * 定时预热即将开始的活动（每分钟）
+     * 活动开始前 preload-minutes 分钟加载库存；SET NX 保证多节点重复预热不会覆盖进行中的库存
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void preloadUpcomingStock() {
+        LocalDateTime now = LocalDateTime.now();
+        warmUp(activityMapper.selectUpcoming(now, now.plusMinutes(preloadMinutes)), now);
+    }
+
+    private int warmUp(List<SeckillActivity> activities, LocalDateTime now) {
+        if (activities.isEmpty()) {
+            return 0;
+        }
+
+        // 管道批量写入，库存key在活动结束后自动过期
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (SeckillActivity activity : activities) {
+                Duration ttl = Duration.between(now, activity.getEndTime()).plus(STOCK_EXPIRE_GRACE);
+                writeShards(conn, activity.getId(), getShardCount(activity), activity.getAvailableStock(),
+                        Expiration.from(ttl), RedisStringCommands.SetOption.SET_IF_ABSENT);
+            }
+            return null;
+        });
+
         for (SeckillActivity activity : activities) {
-            String key = getStockKey(activity.getId());
-            redisTemplate.opsForValue().set(
-                    key, 
-                    String.valueOf(activity.getAvailableStock()),
-                    24, 
-                    TimeUnit.HOURS
-            );
-            log.info("预热库存: activityId={}, stock={}", activity.getId(), activity.getAvailableStock());
+            log.info("预热库存: activityId={}, stock={}, startTime={}, endTime={}",
+                    activity.getId(), activity.getAvailableStock(), activity.getStartTime(), activity.getEndTime());
+        }
+        return activities.size();
+    }
+
+    /**
+     * 迁移不分片活动的旧格式key（seckill:stock:123 → seckill:stock:{123}，位图、在途计数同理）
+     * Redis Cluster下新旧key不在同一slot，不能RENAME，逐个 DUMP + RESTORE（保留剩余过期时间）后删除旧key；
+     * 新key已存在时不覆盖。启动预热前执行，滚动升级期间新旧节点使用的key不同，需在活动开始前完成升级
+     */
+    private void migrateLegacyKeys(List<SeckillActivity> activities) {
+        for (SeckillActivity activity : activities) {
+            if (getShardCount(activity) > 1) {
+                continue;
+            }
+            Long activityId = activity.getId();
+            migrateKey(stockCachePrefix + activityId, getStockKey(activityId, 0, 1));
+            migrateKey(BOUGHT_BITMAP_PREFIX + activityId, getBoughtBitmapKey(activityId, 0, 1));
+            migrateKey(INFLIGHT_PREFIX + activityId, getInflightKey(activityId, 0, 1));
+        }
+    }
+
+    private void migrateKey(String legacyKey, String key) {
+        byte[] legacy = legacyKey.getBytes(StandardCharsets.UTF_8);
+        byte[] target = key.getBytes(StandardCharsets.UTF_8);
+        try {
+            Boolean migrated = redisTemplate.execute((RedisCallback<Boolean>) connection -> {
+                byte[] value = connection.keyCommands().dump(legacy);
+                if (value == null) {
+                    return false;
+                }
+                Long pttl = connection.keyCommands().pTtl(legacy);
+                if (!Boolean.TRUE.equals(connection.keyCommands().exists(target))) {
+                    connection.keyCommands().restore(target, pttl == null || pttl < 0 ? 0 : pttl, value);
+                }
+                connection.keyCommands().del(legacy);
+                return true;
+            });
+            if (Boolean.TRUE.equals(migrated)) {
+                log.info("迁移旧格式key: {} -> {}", legacyKey, key);
+            }
+        } catch (Exception e) {
+            log.error("迁移旧格式key失败: {} -> {}", legacyKey, key, e);
         }
-        
-        log.info("========== 秒杀库存预热完成 ==========");
     }
 
     /**
      * 定时同步库存（每5分钟）
      * 保证Redis与数据库库存的最终一致性
+     *
+     * 只对账进行中的活动，对账公式：Redis库存 + 在途订单数 = 数据库剩余库存
+     * 1. 每个分片的库存和在途计数由Lua脚本一次原子读取，读取期间的准入/撤销不会造成假差值
+     * 2. 先读Redis再读数据库，期间落库但尚未扣减在途计数的订单仍会造成一次性的假差值，
+     *    因此无论偏多还是偏少，都要连续两次对账差值一致才修正
+     * 3. 修正按差值INCRBY而不是整体SET，对账期间的并发扣减不会被覆盖
      */
     @Scheduled(fixedRate = 300000)
     public void syncStock() {
+        if (isLeaseMode()) {
+            // 其他节点持有的租约对本节点不可见，无法判断Redis与数据库是否真正不一致
+            log.debug("租约模式下跳过库存同步");
+            return;
+        }
         log.debug("开始同步库存...");
-        List<SeckillActivity> activities = activityMapper.selectList(null);
-        for (SeckillActivity activity : activities) {
-            String key = getStockKey(activity.getId());
-            String cachedStock = redisTemplate.opsForValue().get(key);
-            if (cachedStock != null) {
-                int redisStock = Integer.parseInt(cachedStock);
-                int dbStock = activity.getAvailableStock();
-                if (redisStock != dbStock) {
-                    log.warn("库存不一致! activityId={}, redisStock={}, dbStock={}", 
-                            activity.getId(), redisStock, dbStock);
-                    // 以数据库为准
-                    redisTemplate.opsForValue().set(key, String.valueOf(dbStock));
-                }
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, int[][]> snapshots = new HashMap<>();
+        for (Long activityId : activityMapper.selectActiveIds(now)) {
+            int[][] snapshot = readSnapshot(activityId, getShardCount(activityId));
+            if (snapshot != null) {
+                snapshots.put(activityId, snapshot);
+            }
+        }
+        if (snapshots.isEmpty()) {
+            suspectedDrift.clear();
+            return;
+        }
+
+        Map<Long, Integer> stillSuspected = new HashMap<>();
+        for (SeckillActivity activity : activityMapper.selectBatchIds(snapshots.keySet())) {
+            Long activityId = activity.getId();
+            int[][] snapshot = snapshots.get(activityId);
+            int redisStock = 0;
+            int inflight = 0;
+            for (int[] shard : snapshot) {
+                redisStock += Math.max(shard[0], 0);
+                inflight += shard[1];
+            }
+            int dbStock = activity.getAvailableStock();
+            int diff = redisStock + inflight - dbStock;
+            if (diff == 0) {
+                continue;
+            }
+            if (!Integer.valueOf(diff).equals(suspectedDrift.get(activityId))) {
+                stillSuspected.put(activityId, diff);
+                continue;
+            }
+
+            log.warn("库存不一致! activityId={}, redisStock={}, inflight={}, dbStock={}",
+                    activityId, redisStock, inflight, dbStock);
+            int applied = adjustShards(activityId, snapshot, -diff);
+            if (redisStock + applied > 0) {
+                activityCacheService.clearSoldOut(activityId);
+            }
+        }
+        suspectedDrift.clear();
+        suspectedDrift.putAll(stillSuspected);
+    }
+
+    /**
+     * 逐分片原子读取库存和在途计数
+     *
+     * @return 每个分片的 {库存, 在途数}，库存为-1表示该分片key不存在；所有分片均不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    private int[][] readSnapshot(Long activityId, int shards) {
+        int[][] snapshot = new int[shards][];
+        boolean exists = false;
+        for (int shard = 0; shard < shards; shard++) {
+            List<Long> values = redisTemplate.execute(STOCK_SNAPSHOT_SCRIPT,
+                    List.of(getStockKey(activityId, shard, shards), getInflightKey(activityId, shard, shards)));
+            if (values == null || values.size() < 2) {
+                return null;
+            }
+            snapshot[shard] = new int[]{values.get(0).intValue(), values.get(1).intValue()};
+            exists |= snapshot[shard][0] >= 0;
+        }
+        return exists ? snapshot : null;
+    }
+
+    /**
+     * 将差值分摊到各分片：增加时均分，减少时按快照库存依次扣减（单个分片不扣到负数）
+     *
+     * @return 实际生效的差值之和
+     */
+    private int adjustShards(Long activityId, int[][] snapshot, int delta) {
+        int shards = snapshot.length;
+        int applied = 0;
+        int remaining = delta;
+        for (int shard = 0; shard < shards && remaining != 0; shard++) {
+            if (snapshot[shard][0] < 0) {
+                continue;
             }
+            int shardDelta = delta > 0
+                    ? delta / shards + (shard < delta % shards ? 1 : 0)
+                    : -Math.min(-remaining, snapshot[shard][0]);
+            if (shardDelta == 0) {
+                continue;
+            }
+            Long result = redisTemplate.execute(ADJUST_STOCK_SCRIPT,
+                    List.of(getStockKey(activityId, shard, shards)), String.valueOf(shardDelta));
+            int shardApplied = result != null ? result.intValue() : 0;
+            applied += shardApplied;
+            remaining -= shardApplied;
+        }
+        return applied;
+    }
+
+    /**
+     * 订单处理完毕（无论成功失败），扣减在途订单计数
+     * 由消费者在数据库事务完成后调用
+     */
+    public void releaseInflight(Long activityId, Long userId) {
+        if (isLeaseMode()) {
+            return;
+        }
+        int shards = getShardCount(activityId);
+        redisTemplate.opsForValue().decrement(getInflightKey(activityId, getHomeShard(userId, shards), shards));
+    }
+
+    /**
+     * 批量扣减在途订单计数，按分片聚合为DECRBY
+     */
+    public void releaseInflight(Long activityId, List<SeckillMessage> messages) {
+        if (isLeaseMode() || messages.isEmpty()) {
+            return;
+        }
+        int shards = getShardCount(activityId);
+        int[] counts = new int[shards];
+        for (SeckillMessage message : messages) {
+            counts[getHomeShard(message.getUserId(), shards)]++;
         }
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (int shard = 0; shard < shards; shard++) {
+                if (counts[shard] > 0) {
+                    conn.decrBy(getInflightKey(activityId, shard, shards), counts[shard]);
+                }
+            }
+            return null;
+        });
     }
 
     /**
@@ -122,15 +509,11 @@ public class StockCacheService {
      * @return true-扣减成功 false-库存不足
      */
     public boolean deductStock(Long activityId) {
-        String key = getStockKey(activityId);
-        
-        // 使用Lua脚本原子操作
-        Long result = redisTemplate.execute(
-                new org.springframework.data.redis.core.script.DefaultRedisScript<>(DEDUCT_STOCK_SCRIPT, Long.class),
-                List.of(key)
-        );
-        
-        boolean success = result != null && result == 1;
+        int shards = getShardCount(activityId);
+
+        // 使用Lua脚本原子操作，分片模式下从随机分片开始探测
+        boolean success = deductFromShards(activityId, shards,
+                ThreadLocalRandom.current().nextInt(shards), -1);
         
         if (success) {
             log.debug("Redis库存预扣减成功: activityId={}", activityId);
@@ -141,34 +524,431 @@ public class StockCacheService {
         return success;
     }
 
+    /**
+     * 秒杀准入：一次Redis往返完成防重校验、库存扣减和置位已秒杀位图
+     *
+     * @param activityId 活动ID
+     * @param userId 用户ID
+     * @return {@link #ADMIT_SUCCESS} / {@link #ADMIT_SOLD_OUT} / {@link #ADMIT_REPEAT} / {@link #ADMIT_NOT_READY}
+     */
+    public long tryAdmit(Long activityId, Long userId) {
+        if (isLeaseMode()) {
+            return tryAdmitWithLease(activityId, userId);
+        }
+        SeckillActivity activity = activityCacheService.getActivity(activityId);
+        int shards = getShardCount(activity);
+        int homeShard = getHomeShard(userId, shards);
+        long offset = getBitmapOffset(userId, shards);
+
+        // 1. 在用户所属分片上执行准入脚本（绝大多数请求到此结束）
+        Long result = redisTemplate.execute(
+                ADMIT_SCRIPT,
+                getAdmitKeys(activityId, homeShard, shards),
+                String.valueOf(offset),
+                String.valueOf(getBitmapExpireSeconds(activity))
+        );
+        long admitResult = result != null ? result : ADMIT_SOLD_OUT;
+
+        // 2. 所属分片已空，探测其他分片（所属分片key不存在时各分片均未预热，不探测）
+        if (admitResult == ADMIT_SOLD_OUT && shards > 1) {
+            admitResult = admitFromOtherShards(activity, userId, shards, homeShard);
+        }
+
+        log.debug("秒杀准入: activityId={}, userId={}, shard={}, result={}",
+                activityId, userId, homeShard, admitResult);
+        return admitResult;
+    }
+
+    /**
+     * 秒杀准入（响应式），返回值同 {@link #tryAdmit}
+     * 所属分片上的准入脚本走响应式命令；所属分片已空时的跨分片探测和租约模式较少触发且包含多次往返，
+     * 切换到弹性线程池复用阻塞实现，不占用事件循环线程
+     */
+    public Mono<Long> tryAdmitReactive(SeckillActivity activity, Long userId) {
+        return Mono.defer(() -> {
+            Long activityId = activity.getId();
+            if (isLeaseMode()) {
+                return Mono.fromCallable(() -> tryAdmitWithLease(activityId, userId))
+                        .subscribeOn(Schedulers.boundedElastic());
+            }
+            int shards = getShardCount(activity);
+            int homeShard = getHomeShard(userId, shards);
+            long offset = getBitmapOffset(userId, shards);
+
+            return reactiveRedisTemplate.execute(
+                            ADMIT_SCRIPT,
+                            getAdmitKeys(activityId, homeShard, shards),
+                            List.of(String.valueOf(offset), String.valueOf(getBitmapExpireSeconds(activity))))
+                    .next()
+                    .defaultIfEmpty(ADMIT_SOLD_OUT)
+                    .flatMap(result -> {
+                        if (result == ADMIT_SOLD_OUT && shards > 1) {
+                            return Mono.fromCallable(() -> admitFromOtherShards(activity, userId, shards, homeShard))
+                                    .subscribeOn(Schedulers.boundedElastic());
+                        }
+                        return Mono.just(result);
+                    })
+                    .doOnNext(result -> log.debug("秒杀准入: activityId={}, userId={}, shard={}, result={}",
+                            activityId, userId, homeShard, result));
+        });
+    }
+
+    /**
+     * 所属分片售罄时的兜底：先占用户位，再依次探测其他分片，全部为空则清除用户位
+     * 位图与所属分片同slot，跨分片无法放进同一个脚本，SETBIT返回原值，原值为0才算占位成功，
+     * 保证同一用户不会并发准入
+     */
+    private long admitFromOtherShards(SeckillActivity activity, Long userId, int shards, int homeShard) {
+        Long activityId = activity.getId();
+        if (!markBought(activityId, userId, shards, getBitmapExpireSeconds(activity))) {
+            return ADMIT_REPEAT;
+        }
+        if (deductFromShards(activityId, shards, homeShard + 1, homeShard)) {
+            return ADMIT_SUCCESS;
+        }
+        unmarkBought(activityId, userId, shards);
+        return ADMIT_SOLD_OUT;
+    }
+
+    /**
+     * 租约模式准入：SETBIT占用户位 + 本地租约扣减
+     */
+    private long tryAdmitWithLease(Long activityId, Long userId) {
+        SeckillActivity activity = activityCacheService.getActivity(activityId);
+        int shards = getShardCount(activity);
+        if (!markBought(activityId, userId, shards, getBitmapExpireSeconds(activity))) {
+            return ADMIT_REPEAT;
+        }
+        if (stockLeaseService.tryDeduct(activityId, size -> leaseFromRedis(activityId, shards, size))) {
+            return ADMIT_SUCCESS;
+        }
+        unmarkBought(activityId, userId, shards);
+        return ADMIT_SOLD_OUT;
+    }
+
+    /**
+     * 置位已秒杀位图，返回是否由本次调用置位（原值为0）
+     * 首次置位时补设过期时间，跟随活动结束时间清理
+     */
+    private boolean markBought(Long activityId, Long userId, int shards, long expireSeconds) {
+        String bitmapKey = getBoughtBitmapKey(activityId, getHomeShard(userId, shards), shards);
+        Boolean previous = redisTemplate.opsForValue().setBit(bitmapKey, getBitmapOffset(userId, shards), true);
+        if (Boolean.TRUE.equals(previous)) {
+            return false;
+        }
+        Long ttl = redisTemplate.getExpire(bitmapKey);
+        if (ttl == null || ttl < 0) {
+            redisTemplate.expire(bitmapKey, expireSeconds, TimeUnit.SECONDS);
+        }
+        return true;
+    }
+
+    /**
+     * 清除已秒杀位，返回清除前是否已置位
+     */
+    private boolean unmarkBought(Long activityId, Long userId, int shards) {
+        String bitmapKey = getBoughtBitmapKey(activityId, getHomeShard(userId, shards), shards);
+        Boolean previous = redisTemplate.opsForValue().setBit(bitmapKey, getBitmapOffset(userId, shards), false);
+        return Boolean.TRUE.equals(previous);
+    }
+
+    /**
+     * 从中心库存租借一批，分片模式下从随机分片开始探测
+     */
+    private int leaseFromRedis(Long activityId, int shards, int size) {
+        int start = ThreadLocalRandom.current().nextInt(shards);
+        for (int i = 0; i < shards; i++) {
+            String key = getStockKey(activityId, (start + i) % shards, shards);
+            Long granted = redisTemplate.execute(LEASE_STOCK_SCRIPT, List.of(key), String.valueOf(size));
+            if (granted != null && granted > 0) {
+                return granted.intValue();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 归还活动未用完的本地租约到中心库存
+     */
+    public void returnLease(Long activityId) {
+        returnToCenter(activityId, stockLeaseService.drain(activityId));
+    }
+
+    /**
+     * 归还租约库存到中心库存
+     * 库存key已过期（活动早已结束）时不再归还，INCRBY会重建一个没有过期时间的key
+     */
+    private void returnToCenter(Long activityId, int unused) {
+        if (unused <= 0) {
+            return;
+        }
+        int shards = getShardCount(activityId);
+        String key = getStockKey(activityId, ThreadLocalRandom.current().nextInt(shards), shards);
+        Long returned = redisTemplate.execute(ADJUST_STOCK_SCRIPT, List.of(key), String.valueOf(unused));
+        if (returned == null || returned <= 0) {
+            log.info("库存key已不存在，丢弃租约: activityId={}, unused={}", activityId, unused);
+            return;
+        }
+        activityCacheService.clearSoldOut(activityId);
+        log.info("归还库存租约: activityId={}, unused={}", activityId, unused);
+    }
+
+    /**
+     * 定时归还已结束活动的租约并移除（每10秒），租约表不随历史活动增长
+     */
+    @Scheduled(fixedDelay = 10000)
+    public void returnExpiredLeases() {
+        LocalDateTime now = LocalDateTime.now();
+        for (Long activityId : stockLeaseService.getLeasedActivityIds()) {
+            SeckillActivity activity = activityCacheService.getActivity(activityId);
+            if (activity == null || now.isAfter(activity.getEndTime())) {
+                returnToCenter(activityId, stockLeaseService.remove(activityId));
+            }
+        }
+    }
+
+    /**
+     * 节点下线时归还全部租约
+     */
+    @PreDestroy
+    public void returnAllLeases() {
+        for (Long activityId : stockLeaseService.getLeasedActivityIds()) {
+            try {
+                returnLease(activityId);
+            } catch (Exception e) {
+                log.error("归还库存租约失败: activityId={}, remaining={}",
+                        activityId, stockLeaseService.getRemaining(activityId), e);
+            }
+        }
+    }
+
+    /**
+     * 标记活动售罄
+     * 租约模式下中心库存为空不代表其他节点的租约也已用完，只在本地标记，不广播
+     */
+    public void markSoldOut(Long activityId) {
+        if (isLeaseMode()) {
+            activityCacheService.markSoldOutLocally(activityId);
+        } else {
+            activityCacheService.markSoldOut(activityId);
+        }
+    }
+
+    /**
+     * 撤销准入
+     * 准入成功但后续步骤失败（如MQ发送失败、消费端建单失败）时调用，归还库存并允许用户重试
+     * 以用户位是否置位为准，重复调用只归还一次
+     */
+    public void cancelAdmission(Long activityId, Long userId) {
+        if (isLeaseMode()) {
+            if (unmarkBought(activityId, userId, getShardCount(activityId))) {
+                stockLeaseService.giveBack(activityId);
+                activityCacheService.clearSoldOut(activityId);
+            }
+            log.debug("秒杀准入已撤销: activityId={}, userId={}", activityId, userId);
+            return;
+        }
+        // 归还到用户所属分片（分片间库存可互相探测，归还到哪个分片不影响总量）
+        int shards = getShardCount(activityId);
+        int homeShard = getHomeShard(userId, shards);
+        Long restored = redisTemplate.execute(
+                CANCEL_ADMISSION_SCRIPT,
+                List.of(getStockKey(activityId, homeShard, shards),
+                        getBoughtBitmapKey(activityId, homeShard, shards),
+                        getInflightKey(activityId, homeShard, shards)),
+                String.valueOf(getBitmapOffset(userId, shards))
+        );
+        if (restored != null && restored == 1) {
+            activityCacheService.clearSoldOut(activityId);
+        }
+        log.debug("秒杀准入已撤销: activityId={}, userId={}", activityId, userId);
+    }
+
+    /**
+     * 用户是否已通过秒杀准入
+     */
+    public boolean isAdmitted(Long activityId, Long userId) {
+        int shards = getShardCount(activityId);
+        String bitmapKey = getBoughtBitmapKey(activityId, getHomeShard(userId, shards), shards);
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().getBit(bitmapKey, getBitmapOffset(userId, shards)));
+    }
+
     /**
      * 恢复Redis库存
      * 当订单创建失败或取消时调用
      */
     public void restoreStock(Long activityId) {
-        String key = getStockKey(activityId);
+        int shards = getShardCount(activityId);
+        String key = getStockKey(activityId, ThreadLocalRandom.current().nextInt(shards), shards);
         redisTemplate.opsForValue().increment(key);
+        activityCacheService.clearSoldOut(activityId);
         log.debug("Redis库存已恢复: activityId={}", activityId);
     }
 
     /**
-     * 获取当前库存
+     * 获取当前库存（分片模式下汇总所有分片，租约模式下加上本节点未用完的租约）
      */
     public int getStock(Long activityId) {
-        String key = getStockKey(activityId);
-        String stock = redisTemplate.opsForValue().get(key);
-        return stock != null ? Integer.parseInt(stock) : 0;
+        Integer stock = sumShards(activityId, getShardCount(activityId));
+        int leased = isLeaseMode() ? stockLeaseService.getRemaining(activityId) : 0;
+        return (stock != null ? stock : 0) + leased;
     }
 
     /**
      * 检查库存是否充足
      */
     public boolean hasStock(Long activityId) {
+        if (activityCacheService.isSoldOut(activityId)) {
+            return false;
+        }
         return getStock(activityId) > 0;
     }
 
-    private String getStockKey(Long activityId) {
-        return stockCachePrefix + activityId;
+    /**
+     * 从指定分片开始依次探测扣减，跳过skipShard
+     */
+    private boolean deductFromShards(Long activityId, int shards, int startShard, int skipShard) {
+        for (int i = 0; i < shards; i++) {
+            int shard = (startShard + i) % shards;
+            if (shard == skipShard) {
+                continue;
+            }
+            Long result = redisTemplate.execute(DEDUCT_STOCK_SCRIPT,
+                    List.of(getStockKey(activityId, shard, shards), getInflightKey(activityId, shard, shards)));
+            if (result != null && result == 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 汇总各分片库存
+     *
+     * @return 所有分片均不存在时返回null
+     */
+    private Integer sumShards(Long activityId, int shards) {
+        List<String> keys = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            keys.add(getStockKey(activityId, shard, shards));
+        }
+        List<String> values = redisTemplate.opsForValue().multiGet(keys);
+        if (values == null) {
+            return null;
+        }
+        Integer total = null;
+        for (String value : values) {
+            if (value != null) {
+                total = (total != null ? total : 0) + Integer.parseInt(value);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 将库存均分写入各分片，余数分给前几个分片（在管道中执行）
+     */
+    private void writeShards(StringRedisConnection conn, Long activityId, int shards, int stock,
+                             Expiration expiration, RedisStringCommands.SetOption option) {
+        for (int shard = 0; shard < shards; shard++) {
+            int shardStock = stock / shards + (shard < stock % shards ? 1 : 0);
+            conn.set(getStockKey(activityId, shard, shards), String.valueOf(shardStock), expiration, option);
+        }
+    }
+
+    /**
+     * 活动的库存分片数
+     * 由总库存决定（而非剩余库存），保证各节点、各时刻计算结果一致
+     */
+    private int getShardCount(SeckillActivity activity) {
+        if (shardCount <= 1 || activity == null || activity.getTotalStock() < shardThreshold) {
+            return 1;
+        }
+        return shardCount;
+    }
+
+    private boolean isLeaseMode() {
+        return MODE_LEASE.equalsIgnoreCase(stockMode);
+    }
+
+    private int getShardCount(Long activityId) {
+        return getShardCount(activityCacheService.getActivity(activityId));
+    }
+
+    /**
+     * 用户所属分片，按用户ID取模
+     * 取模而非哈希，使同一分片内的用户ID除以分片数后互不相同，可直接作为位图偏移量
+     */
+    private int getHomeShard(Long userId, int shards) {
+        return (int) Math.floorMod(userId, (long) shards);
+    }
+
+    /**
+     * 用户在已秒杀位图中的偏移量
+     * 分片模式下每个分片只存放本分片用户，偏移量取 userId / shards，避免各分片位图都按最大用户ID展开
+     */
+    private long getBitmapOffset(Long userId, int shards) {
+        long offset = userId / shards;
+        if (userId < 0 || offset > MAX_BITMAP_OFFSET) {
+            throw new IllegalArgumentException("用户ID超出已秒杀位图范围: userId=" + userId);
+        }
+        return offset;
+    }
+
+    /**
+     * 已秒杀位图过期时间：活动结束后保留 BOUGHT_BITMAP_EXPIRE_GRACE，活动已结束或查不到时按保留时间计
+     */
+    private long getBitmapExpireSeconds(SeckillActivity activity) {
+        Duration ttl = BOUGHT_BITMAP_EXPIRE_GRACE;
+        LocalDateTime now = LocalDateTime.now();
+        if (activity != null && activity.getEndTime() != null && activity.getEndTime().isAfter(now)) {
+            ttl = Duration.between(now, activity.getEndTime()).plus(BOUGHT_BITMAP_EXPIRE_GRACE);
+        }
+        return ttl.getSeconds();
+    }
+
+    /**
+     * 库存key（花括号为hash tag，同一活动/分片的库存、位图、在途计数落在同一slot）
+     * 不分片：seckill:stock:{activityId}
+     * 分片：seckill:stock:{activityId:shard}，各分片分散到不同slot
+     */
+    private String getStockKey(Long activityId, int shard, int shards) {
+        if (shards <= 1) {
+            return stockCachePrefix + "{" + activityId + "}";
+        }
+        return stockCachePrefix + "{" + activityId + ":" + shard + "}";
+    }
+
+    /**
+     * 在途订单计数key，与库存key共用hash tag
+     */
+    private String getInflightKey(Long activityId, int shard, int shards) {
+        if (shards <= 1) {
+            return INFLIGHT_PREFIX + "{" + activityId + "}";
+        }
+        return INFLIGHT_PREFIX + "{" + activityId + ":" + shard + "}";
+    }
+
+    /**
+     * 准入脚本的三个key：库存、已秒杀位图、在途订单计数，均在用户所属分片上
+     */
+    private List<String> getAdmitKeys(Long activityId, int homeShard, int shards) {
+        return List.of(getStockKey(activityId, homeShard, shards),
+                getBoughtBitmapKey(activityId, homeShard, shards),
+                getInflightKey(activityId, homeShard, shards));
+    }
+
+    /**
+     * 已秒杀位图key
+     * 不分片：seckill:bought:{activityId}
+     * 分片：seckill:bought:{activityId:shard}
+     * 与库存key共用hash tag，保证准入脚本的三个key落在同一slot
+     */
+    private String getBoughtBitmapKey(Long activityId, int shard, int shards) {
+        if (shards <= 1) {
+            return BOUGHT_BITMAP_PREFIX + "{" + activityId + "}";
+        }
+        return BOUGHT_BITMAP_PREFIX + "{" + activityId + ":" + shard + "}";
     }
 }
 
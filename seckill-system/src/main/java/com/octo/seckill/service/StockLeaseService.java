@@ -0,0 +1,159 @@
+package com.octo.seckill.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 节点库存租约服务
+ *
+ * 面试要点：如何让大部分扣减不访问Redis？
+ *
+ * 1. 批量租借
+ *    - 本节点一次从Redis中心库存租借一批（如50件）
+ *    - 之后在JVM内用AtomicInteger CAS扣减，不再访问Redis
+ *
+ * 2. 自适应租约大小
+ *    - 根据上一批租约的消耗速度估算本节点QPS
+ *    - 下一批租约大小 ≈ QPS × target-millis，限制在[min-size, max-size]
+ *    - 流量大的节点租得多，流量小的节点不会囤积库存
+ *
+ * 3. 归还
+ *    - 活动结束或节点下线时，未用完的租约归还到Redis中心库存
+ *
+ * 本类只负责本地记账，Redis读写由 {@link StockCacheService} 完成
+ */
+@Slf4j
+@Service
+public class StockLeaseService {
+
+    @Value("${seckill.stock.lease.initial-size}")
+    private int initialSize;
+
+    @Value("${seckill.stock.lease.min-size}")
+    private int minSize;
+
+    @Value("${seckill.stock.lease.max-size}")
+    private int maxSize;
+
+    @Value("${seckill.stock.lease.target-millis}")
+    private long targetMillis;
+
+    private final Map<Long, Lease> leases = new ConcurrentHashMap<>();
+
+    /**
+     * 从本地租约扣减1件库存，租约用完时通过leaser向中心库存续租
+     *
+     * @param activityId 活动ID
+     * @param leaser 入参为期望租借数量，返回实际租到的数量（0表示中心库存已空）
+     * @return true-扣减成功 false-本地与中心库存均已耗尽
+     */
+    public boolean tryDeduct(Long activityId, IntUnaryOperator leaser) {
+        Lease lease = leases.computeIfAbsent(activityId, id -> new Lease());
+        while (true) {
+            if (lease.tryTake()) {
+                return true;
+            }
+            // 同一活动只允许一个线程续租，其余线程等待续租结果
+            synchronized (lease) {
+                if (lease.remaining.get() > 0) {
+                    continue;
+                }
+                int size = lease.nextSize();
+                int granted = leaser.applyAsInt(size);
+                if (granted <= 0) {
+                    return false;
+                }
+                lease.grant(granted);
+                log.debug("续租库存: activityId={}, expected={}, granted={}", activityId, size, granted);
+            }
+        }
+    }
+
+    /**
+     * 归还1件库存到本地租约（准入撤销时调用）
+     */
+    public void giveBack(Long activityId) {
+        leases.computeIfAbsent(activityId, id -> new Lease()).remaining.incrementAndGet();
+    }
+
+    /**
+     * 取出本地租约中剩余的全部库存，由调用方归还到中心库存
+     */
+    public int drain(Long activityId) {
+        Lease lease = leases.get(activityId);
+        return lease != null ? lease.remaining.getAndSet(0) : 0;
+    }
+
+    /**
+     * 移除活动的租约（活动已结束），返回其中剩余的库存，由调用方归还到中心库存
+     */
+    public int remove(Long activityId) {
+        Lease lease = leases.remove(activityId);
+        return lease != null ? lease.remaining.getAndSet(0) : 0;
+    }
+
+    /**
+     * 本地剩余租约库存
+     */
+    public int getRemaining(Long activityId) {
+        Lease lease = leases.get(activityId);
+        return lease != null ? lease.remaining.get() : 0;
+    }
+
+    /**
+     * 持有过租约的活动
+     */
+    public Set<Long> getLeasedActivityIds() {
+        return leases.keySet();
+    }
+
+    /**
+     * 单个活动的租约
+     */
+    private class Lease {
+
+        private final AtomicInteger remaining = new AtomicInteger();
+
+        /**
+         * 上一次租到的数量及时间，用于估算消耗速度
+         */
+        private volatile int lastGranted;
+        private volatile long lastGrantNanos;
+
+        boolean tryTake() {
+            int current;
+            do {
+                current = remaining.get();
+                if (current <= 0) {
+                    return false;
+                }
+            } while (!remaining.compareAndSet(current, current - 1));
+            return true;
+        }
+
+        void grant(int granted) {
+            lastGranted = granted;
+            lastGrantNanos = System.nanoTime();
+            remaining.addAndGet(granted);
+        }
+
+        /**
+         * 根据上一批租约的消耗速度计算下一批大小
+         */
+        int nextSize() {
+            if (lastGrantNanos == 0) {
+                return initialSize;
+            }
+            long elapsedMillis = Math.max(1, (System.nanoTime() - lastGrantNanos) / 1_000_000);
+            long expected = lastGranted * targetMillis / elapsedMillis;
+            return (int) Math.max(minSize, Math.min(maxSize, expected));
+        }
+    }
+}
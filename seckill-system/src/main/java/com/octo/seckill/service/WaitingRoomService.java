@@ -0,0 +1,219 @@
+package com.octo.seckill.service;
+
+import com.octo.seckill.entity.SeckillActivity;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 秒杀排队（虚拟等候室）服务
+ *
+ * 面试要点：开抢瞬间所有人同时涌入，大部分人做完全部工作后才失败，怎么办？
+ *
+ * 1. 有界排队
+ *    - 每个活动一个排队计数器，用户进入时领取排队号
+ *    - 只放行约 总库存 × admit-ratio 个排队号进入下单流程
+ *    - 其余请求立即返回"未抢到"，不再执行准入脚本、不发MQ
+ *
+ * 2. 本地满员标记
+ *    - 某节点发现等候室已满后本地记住，之后该活动的请求零I/O直接拒绝
+ *    - 活动结束后定时清除本地标记，Redis排队数据在活动结束后保留一段时间自动过期
+ *
+ * 每场秒杀的总工作量只与库存相关，不再随流量线性增长
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WaitingRoomService {
+
+    private final StringRedisTemplate redisTemplate;
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate;
+
+    @Value("${seckill.waiting-room.enabled}")
+    private boolean enabled;
+
+    /**
+     * 放行比例k：放行排队号数量 = 总库存 × k
+     */
+    @Value("${seckill.waiting-room.admit-ratio}")
+    private double admitRatio;
+
+    private static final String COUNTER_PREFIX = "seckill:queue:counter:";
+    private static final String POSITION_PREFIX = "seckill:queue:position:";
+
+    /**
+     * 排队数据在活动结束后的保留时间（供活动结束后查询排队号）
+     */
+    private static final Duration QUEUE_EXPIRE_GRACE = Duration.ofHours(1);
+
+    /**
+     * 排队结果：等候室已满
+     */
+    public static final long QUEUE_FULL = 0L;
+
+    /**
+     * 入队Lua脚本
+     *
+     * KEYS[1] 排队计数器，KEYS[2] 用户排队号Hash，ARGV[1] 用户ID，ARGV[2] 容量，ARGV[3] 过期时间（秒）
+     * 注意：Redis Cluster下两个key需落在同一slot，共用hash tag {活动ID} 保证
+     * 已排过队的用户返回原排队号；已满返回0；否则发放新排队号
+     */
+    private static final DefaultRedisScript<Long> ENQUEUE_SCRIPT = new DefaultRedisScript<>(
+            "local pos = redis.call('HGET', KEYS[2], ARGV[1]) " +
+            "if pos then " +
+            "    return tonumber(pos) " +
+            "end " +
+            "local count = tonumber(redis.call('GET', KEYS[1]) or '0') " +
+            "if count >= tonumber(ARGV[2]) then " +
+            "    return 0 " +
+            "end " +
+            "count = redis.call('INCR', KEYS[1]) " +
+            "redis.call('HSET', KEYS[2], ARGV[1], count) " +
+            "if count == 1 then " +
+            "    redis.call('EXPIRE', KEYS[1], ARGV[3]) " +
+            "    redis.call('EXPIRE', KEYS[2], ARGV[3]) " +
+            "end " +
+            "return count",
+            Long.class);
+
+    /**
+     * 等候室已满的活动及其结束时间，活动结束后清除
+     */
+    private final Map<Long, LocalDateTime> fullActivities = new ConcurrentHashMap<>();
+
+    /**
+     * 进入等候室
+     *
+     * @return 排队号（从1开始）；{@link #QUEUE_FULL} 表示等候室已满；未启用时返回-1
+     */
+    public long enqueue(SeckillActivity activity, Long userId) {
+        if (!enabled) {
+            return -1L;
+        }
+        Long activityId = activity.getId();
+        if (fullActivities.containsKey(activityId)) {
+            return QUEUE_FULL;
+        }
+
+        long capacity = getCapacity(activity);
+        Long position = redisTemplate.execute(
+                ENQUEUE_SCRIPT,
+                getKeys(activityId),
+                String.valueOf(userId),
+                String.valueOf(capacity),
+                String.valueOf(getExpireSeconds(activity))
+        );
+        return onEnqueued(activity, capacity, position);
+    }
+
+    /**
+     * 进入等候室（响应式），返回值同 {@link #enqueue}
+     */
+    public Mono<Long> enqueueReactive(SeckillActivity activity, Long userId) {
+        return Mono.defer(() -> {
+            if (!enabled) {
+                return Mono.just(-1L);
+            }
+            Long activityId = activity.getId();
+            if (fullActivities.containsKey(activityId)) {
+                return Mono.just(QUEUE_FULL);
+            }
+
+            long capacity = getCapacity(activity);
+            return reactiveRedisTemplate.execute(
+                            ENQUEUE_SCRIPT,
+                            getKeys(activityId),
+                            List.of(String.valueOf(userId), String.valueOf(capacity),
+                                    String.valueOf(getExpireSeconds(activity))))
+                    .next()
+                    .defaultIfEmpty(QUEUE_FULL)
+                    .map(position -> onEnqueued(activity, capacity, position));
+        });
+    }
+
+    /**
+     * 查询用户排队号
+     *
+     * @return 未排队返回null
+     */
+    public Long getPosition(Long activityId, Long userId) {
+        Object position = redisTemplate.opsForHash().get(getPositionKey(activityId), String.valueOf(userId));
+        return position != null ? Long.valueOf(position.toString()) : null;
+    }
+
+    /**
+     * 等候室容量 = 总库存 × k
+     */
+    private long getCapacity(SeckillActivity activity) {
+        return Math.max(1L, (long) Math.ceil(activity.getTotalStock() * admitRatio));
+    }
+
+    /**
+     * 排队数据过期时间：活动结束后保留 QUEUE_EXPIRE_GRACE，活动已结束时按保留时间计
+     */
+    private long getExpireSeconds(SeckillActivity activity) {
+        Duration ttl = QUEUE_EXPIRE_GRACE;
+        LocalDateTime now = LocalDateTime.now();
+        if (activity.getEndTime() != null && activity.getEndTime().isAfter(now)) {
+            ttl = Duration.between(now, activity.getEndTime()).plus(QUEUE_EXPIRE_GRACE);
+        }
+        return ttl.getSeconds();
+    }
+
+    /**
+     * 定时清除已结束活动的满员标记（每分钟）
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void purgeEndedActivities() {
+        LocalDateTime now = LocalDateTime.now();
+        fullActivities.values().removeIf(endTime -> endTime.isBefore(now));
+    }
+
+    /**
+     * 入队脚本的两个key：排队计数器、用户排队号Hash
+     */
+    private List<String> getKeys(Long activityId) {
+        return List.of(getCounterKey(activityId), getPositionKey(activityId));
+    }
+
+    /**
+     * 排队计数器key：seckill:queue:counter:{activityId}（花括号为hash tag，与排队号Hash同slot）
+     */
+    private String getCounterKey(Long activityId) {
+        return COUNTER_PREFIX + "{" + activityId + "}";
+    }
+
+    /**
+     * 用户排队号Hash key：seckill:queue:position:{activityId}
+     */
+    private String getPositionKey(Long activityId) {
+        return POSITION_PREFIX + "{" + activityId + "}";
+    }
+
+    /**
+     * 处理入队脚本结果，已满时记录本地满员标记
+     */
+    private long onEnqueued(SeckillActivity activity, long capacity, Long position) {
+        if (position == null || position == QUEUE_FULL) {
+            Long activityId = activity.getId();
+            LocalDateTime endTime = activity.getEndTime() != null ? activity.getEndTime() : LocalDateTime.now();
+            if (fullActivities.putIfAbsent(activityId, endTime) == null) {
+                log.info("等候室已满: activityId={}, capacity={}", activityId, capacity);
+            }
+            return QUEUE_FULL;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,37 @@
+package com.octo.shorturl.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * 分片路由数据源
+ *
+ * 获取连接时按当前线程绑定的分片序号选择目标库，未绑定时使用默认库（号段表、访问日志、统计表）
+ * 注意：事务开始时就会获取连接，跨分片操作不能放在同一个 @Transactional 中
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+
+    /**
+     * 当前线程绑定的分片序号，未绑定时返回null
+     */
+    public static Integer currentShard() {
+        return CURRENT_SHARD.get();
+    }
+
+    /**
+     * 绑定分片序号，传null时解除绑定
+     */
+    public static void setCurrentShard(Integer shard) {
+        if (shard == null) {
+            CURRENT_SHARD.remove();
+        } else {
+            CURRENT_SHARD.set(shard);
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return CURRENT_SHARD.get();
+    }
+}
@@ -0,0 +1,110 @@
+package com.octo.shorturl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分片数据源配置
+ *
+ * - 默认库：spring.datasource，存放号段表、访问日志、统计表
+ * - 分片库：short-url.sharding.url-template 中的 {shard} 替换为分片序号，存放 t_short_url、t_long_url_mapping
+ *   用户名、密码、驱动复用 spring.datasource
+ * - 单分片且未配置 url-template 时，唯一分片就是默认库，与分片前完全一致
+ * - 配置了建表脚本时（本地H2测试），启动时在对应库上执行
+ */
+@Slf4j
+@Configuration
+public class ShardingDataSourceConfig implements DisposableBean {
+
+    @Value("${short-url.sharding.shard-count}")
+    private int shardCount;
+
+    @Value("${short-url.sharding.url-template}")
+    private String urlTemplate;
+
+    @Value("${short-url.sharding.init.schema-location}")
+    private String schemaLocation;
+
+    @Value("${short-url.sharding.init.shard-schema-location}")
+    private String shardSchemaLocation;
+
+    /**
+     * 本配置创建的连接池，关闭应用时释放
+     */
+    private final List<DataSource> dataSources = new ArrayList<>();
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties, ResourceLoader resourceLoader) {
+        if (shardCount < 1) {
+            throw new IllegalStateException("short-url.sharding.shard-count 必须大于0: " + shardCount);
+        }
+        boolean dedicated = StringUtils.hasText(urlTemplate);
+        if (shardCount > 1 && !dedicated) {
+            throw new IllegalStateException("short-url.sharding.shard-count > 1 时必须配置 url-template");
+        }
+
+        DataSource defaultDataSource = properties.initializeDataSourceBuilder().build();
+        dataSources.add(defaultDataSource);
+        initSchema(defaultDataSource, schemaLocation, resourceLoader);
+
+        Map<Object, Object> shards = new HashMap<>();
+        for (int i = 0; i < shardCount; i++) {
+            if (!dedicated) {
+                shards.put(i, defaultDataSource);
+                continue;
+            }
+            DataSource shard = properties.initializeDataSourceBuilder()
+                    .url(urlTemplate.replace("{shard}", String.valueOf(i)))
+                    .build();
+            dataSources.add(shard);
+            initSchema(shard, shardSchemaLocation, resourceLoader);
+            shards.put(i, shard);
+        }
+        if (!dedicated) {
+            // 单库部署：默认库同时承担分片表
+            initSchema(defaultDataSource, shardSchemaLocation, resourceLoader);
+        }
+
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setDefaultTargetDataSource(defaultDataSource);
+        routing.setTargetDataSources(shards);
+        // 分片序号不存在时报错，不回退到默认库
+        routing.setLenientFallback(false);
+        log.info("分片数据源已初始化: shardCount={}, dedicated={}", shardCount, dedicated);
+        return routing;
+    }
+
+    private void initSchema(DataSource dataSource, String location, ResourceLoader resourceLoader) {
+        if (!StringUtils.hasText(location)) {
+            return;
+        }
+        DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(resourceLoader.getResource(location)), dataSource);
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        for (DataSource dataSource : dataSources) {
+            if (dataSource instanceof Closeable) {
+                ((Closeable) dataSource).close();
+            }
+        }
+    }
+}
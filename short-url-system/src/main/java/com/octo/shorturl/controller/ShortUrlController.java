@@ -1,6 +1,9 @@
 package com.octo.shorturl.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.octo.shorturl.common.Result;
+import com.octo.shorturl.dto.BatchCreateResult;
+import com.octo.shorturl.dto.BatchCreateShortUrlRequest;
 import com.octo.shorturl.dto.CreateShortUrlRequest;
 import com.octo.shorturl.entity.ShortUrl;
 import com.octo.shorturl.service.AccessStatService;
@@ -10,9 +13,15 @@ import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -20,6 +29,7 @@ import java.util.Map;
  * 
  * API接口：
  * - POST /api/short-url/create  创建短链接
+ * - POST /api/short-url/batch-create  批量创建短链接（NDJSON流式返回）
  * - GET  /{shortCode}           访问短链接（302重定向）
  * - GET  /api/short-url/info    获取短链接信息
  * - GET  /api/short-url/stats   获取访问统计
@@ -31,6 +41,9 @@ public class ShortUrlController {
 
     private final ShortUrlService shortUrlService;
     private final AccessStatService statService;
+    private final ObjectMapper objectMapper;
+
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
     /**
      * 创建短链接
@@ -45,6 +58,20 @@ public class ShortUrlController {
         return Result.success("创建成功", shortUrl);
     }
 
+    /**
+     * 批量创建短链接
+     *
+     * 每行一个JSON结果（NDJSON），每处理完一块立即写出并flush，
+     * 客户端不必等整批处理完成即可开始使用已返回的短链接
+     */
+    @PostMapping("/api/short-url/batch-create")
+    public ResponseEntity<StreamingResponseBody> batchCreateShortUrl(
+            @Valid @RequestBody BatchCreateShortUrlRequest request) {
+        StreamingResponseBody body = out -> shortUrlService.createShortUrls(request.getItems(),
+                results -> writeLines(out, results));
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+
     /**
      * 访问短链接（302重定向）
      */
@@ -95,5 +122,16 @@ public class ShortUrlController {
         shortUrlService.disableShortUrl(shortCode);
         return Result.success();
     }
-}
 
+    private void writeLines(OutputStream out, List<BatchCreateResult> results) {
+        try {
+            for (BatchCreateResult result : results) {
+                out.write(objectMapper.writeValueAsBytes(result));
+                out.write('\n');
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("写出批量创建结果失败", e);
+        }
+    }
+}
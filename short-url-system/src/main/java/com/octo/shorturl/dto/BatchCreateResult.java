@@ -0,0 +1,34 @@
+package com.octo.shorturl.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量创建短链接结果（每个请求项一条）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchCreateResult {
+
+    /**
+     * 请求项在列表中的下标
+     */
+    private Integer index;
+
+    /**
+     * 原始长链接
+     */
+    private String longUrl;
+
+    /**
+     * 完整短链接
+     */
+    private String shortUrl;
+
+    /**
+     * true-新建 false-长链接已存在，返回已有短链接
+     */
+    private Boolean created;
+}
@@ -0,0 +1,28 @@
+package com.octo.shorturl.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量创建短链接请求
+ */
+@Data
+public class BatchCreateShortUrlRequest {
+
+    /**
+     * 单次最多创建的短链接数
+     */
+    public static final int MAX_ITEMS = 100000;
+
+    /**
+     * 待创建的短链接
+     */
+    @Valid
+    @NotEmpty(message = "短链接列表不能为空")
+    @Size(max = MAX_ITEMS, message = "单次最多创建" + MAX_ITEMS + "个短链接")
+    private List<CreateShortUrlRequest> items;
+}
@@ -0,0 +1,49 @@
+package com.octo.shorturl.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 每日访问统计实体（按短码、日期预聚合）
+ */
+@Data
+@TableName("t_access_stats_daily")
+public class AccessStatsDaily {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 短码
+     */
+    private String shortCode;
+
+    /**
+     * 统计日期
+     */
+    private LocalDate statDate;
+
+    /**
+     * 页面访问量
+     */
+    private Integer pv;
+
+    /**
+     * 独立访客数（HyperLogLog估算）
+     */
+    private Integer uv;
+
+    /**
+     * IP数
+     */
+    private Integer ipCount;
+
+    private LocalDateTime createTime;
+
+    private LocalDateTime updateTime;
+}
@@ -0,0 +1,59 @@
+package com.octo.shorturl.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 每日维度访问统计实体（设备类型、浏览器分布）
+ */
+@Data
+@TableName("t_access_stats_dimension")
+public class AccessStatsDimension {
+
+    /**
+     * 维度：设备类型
+     */
+    public static final String DEVICE_TYPE = "device_type";
+
+    /**
+     * 维度：浏览器
+     */
+    public static final String BROWSER = "browser";
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 短码
+     */
+    private String shortCode;
+
+    /**
+     * 统计日期
+     */
+    private LocalDate statDate;
+
+    /**
+     * 维度: device_type/browser
+     */
+    private String dimension;
+
+    /**
+     * 维度值，如 Mobile、Chrome
+     */
+    private String dimensionValue;
+
+    /**
+     * 页面访问量
+     */
+    private Integer pv;
+
+    private LocalDateTime createTime;
+
+    private LocalDateTime updateTime;
+}
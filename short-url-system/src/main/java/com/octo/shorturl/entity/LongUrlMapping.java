@@ -0,0 +1,26 @@
+package com.octo.shorturl.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 长链接映射实体（长链接Hash → 短码，按Hash分片，用于去重）
+ */
+@Data
+@TableName("t_long_url_mapping")
+public class LongUrlMapping {
+
+    /**
+     * 长链接Hash值
+     */
+    private String longUrlHash;
+
+    /**
+     * 短码
+     */
+    private String shortCode;
+
+    private LocalDateTime createTime;
+}
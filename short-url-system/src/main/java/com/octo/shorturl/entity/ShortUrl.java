@@ -14,7 +14,10 @@ import java.time.LocalDateTime;
 @TableName("t_short_url")
 public class ShortUrl {
 
-    @TableId(type = IdType.AUTO)
+    /**
+     * 号段ID（短码即其62进制，按此ID分片）
+     */
+    @TableId(type = IdType.INPUT)
     private Long id;
 
     /**
@@ -48,7 +51,7 @@ public class ShortUrl {
     private LocalDateTime expireTime;
 
     /**
-     * 状态: 0-禁用 1-正常
+     * 状态: 0-禁用 1-正常 2-已过期
      */
     private Integer status;
 
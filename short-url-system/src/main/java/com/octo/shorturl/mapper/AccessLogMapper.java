@@ -2,13 +2,13 @@ package com.octo.shorturl.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.octo.shorturl.entity.AccessLog;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
-import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
 
 /**
  * 访问日志Mapper
@@ -17,40 +17,35 @@ import java.util.Map;
 public interface AccessLogMapper extends BaseMapper<AccessLog> {
 
     /**
-     * 统计短码的访问量（PV）
+     * 批量写入访问日志（多行INSERT）
      */
-    @Select("SELECT COUNT(1) FROM t_access_log WHERE short_code = #{shortCode}")
-    long countPv(@Param("shortCode") String shortCode);
+    @Insert("<script>" +
+            "INSERT INTO t_access_log (short_code, ip, user_agent, referer, device_type, browser, os, access_time) VALUES " +
+            "<foreach collection='logs' item='log' separator=','>" +
+            "(#{log.shortCode}, #{log.ip}, #{log.userAgent}, #{log.referer}, " +
+            "#{log.deviceType}, #{log.browser}, #{log.os}, #{log.accessTime})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("logs") List<AccessLog> logs);
 
     /**
-     * 统计短码的独立访客数（UV，按IP去重）
+     * 最早的访问时间（统计回填的起点）
      */
-    @Select("SELECT COUNT(DISTINCT ip) FROM t_access_log WHERE short_code = #{shortCode}")
-    long countUv(@Param("shortCode") String shortCode);
+    @Select("SELECT MIN(access_time) FROM t_access_log")
+    LocalDateTime findFirstAccessTime();
 
     /**
-     * 按日期统计PV
+     * 按 (短码, IP) 分页查询时间段内的独立访客（统计回填写入累计UV）
      */
-    @Select("SELECT DATE(access_time) as date, COUNT(1) as count " +
-            "FROM t_access_log WHERE short_code = #{shortCode} " +
-            "AND access_time >= #{startDate} AND access_time < #{endDate} " +
-            "GROUP BY DATE(access_time) ORDER BY date")
-    List<Map<String, Object>> countPvByDate(@Param("shortCode") String shortCode,
-                                            @Param("startDate") LocalDate startDate,
-                                            @Param("endDate") LocalDate endDate);
-
-    /**
-     * 按设备类型统计
-     */
-    @Select("SELECT device_type, COUNT(1) as count FROM t_access_log " +
-            "WHERE short_code = #{shortCode} GROUP BY device_type")
-    List<Map<String, Object>> countByDeviceType(@Param("shortCode") String shortCode);
-
-    /**
-     * 按浏览器统计
-     */
-    @Select("SELECT browser, COUNT(1) as count FROM t_access_log " +
-            "WHERE short_code = #{shortCode} GROUP BY browser ORDER BY count DESC LIMIT 10")
-    List<Map<String, Object>> countByBrowser(@Param("shortCode") String shortCode);
+    @Select("<script>" +
+            "SELECT DISTINCT short_code, ip FROM t_access_log " +
+            "WHERE access_time &gt;= #{from} AND access_time &lt; #{to} AND ip IS NOT NULL " +
+            "<if test='lastCode != null'>" +
+            "AND (short_code &gt; #{lastCode} OR (short_code = #{lastCode} AND ip &gt; #{lastIp})) " +
+            "</if>" +
+            "ORDER BY short_code, ip LIMIT #{limit}" +
+            "</script>")
+    List<AccessLog> findVisitors(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                 @Param("lastCode") String lastCode, @Param("lastIp") String lastIp,
+                                 @Param("limit") int limit);
 }
-
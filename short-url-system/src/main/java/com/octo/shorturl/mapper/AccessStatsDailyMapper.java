@@ -0,0 +1,58 @@
+package com.octo.shorturl.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.octo.shorturl.entity.AccessStatsDaily;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 每日访问统计Mapper
+ */
+@Mapper
+public interface AccessStatsDailyMapper extends BaseMapper<AccessStatsDaily> {
+
+    /**
+     * 批量累加PV（不存在时插入），UV取HyperLogLog的最新估算值
+     */
+    @Insert("<script>" +
+            "INSERT INTO t_access_stats_daily (short_code, stat_date, pv, uv) VALUES " +
+            "<foreach collection='stats' item='s' separator=','>" +
+            "(#{s.shortCode}, #{s.statDate}, #{s.pv}, #{s.uv})" +
+            "</foreach> " +
+            "ON DUPLICATE KEY UPDATE pv = pv + VALUES(pv), uv = GREATEST(uv, VALUES(uv))" +
+            "</script>")
+    int upsertBatch(@Param("stats") List<AccessStatsDaily> stats);
+
+    /**
+     * 从原始访问日志重新汇总一天的PV/UV（统计回填，覆盖写入，重复执行结果相同）
+     */
+    @Insert("INSERT INTO t_access_stats_daily (short_code, stat_date, pv, uv) " +
+            "SELECT short_code, #{statDate}, COUNT(1), COUNT(DISTINCT ip) FROM t_access_log " +
+            "WHERE access_time >= #{from} AND access_time < #{to} GROUP BY short_code " +
+            "ON DUPLICATE KEY UPDATE pv = VALUES(pv), uv = VALUES(uv)")
+    int backfillFromAccessLog(@Param("statDate") LocalDate statDate,
+                              @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * 统计短码的总访问量（PV）
+     */
+    @Select("SELECT COALESCE(SUM(pv), 0) FROM t_access_stats_daily WHERE short_code = #{shortCode}")
+    long sumPv(@Param("shortCode") String shortCode);
+
+    /**
+     * 按日期查询PV/UV
+     */
+    @Select("SELECT stat_date as date, pv as count, uv FROM t_access_stats_daily " +
+            "WHERE short_code = #{shortCode} AND stat_date >= #{startDate} AND stat_date < #{endDate} " +
+            "ORDER BY stat_date")
+    List<Map<String, Object>> findByDate(@Param("shortCode") String shortCode,
+                                         @Param("startDate") LocalDate startDate,
+                                         @Param("endDate") LocalDate endDate);
+}
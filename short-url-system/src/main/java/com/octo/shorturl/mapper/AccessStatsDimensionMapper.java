@@ -0,0 +1,60 @@
+package com.octo.shorturl.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.octo.shorturl.entity.AccessStatsDimension;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 每日维度访问统计Mapper
+ */
+@Mapper
+public interface AccessStatsDimensionMapper extends BaseMapper<AccessStatsDimension> {
+
+    /**
+     * 批量累加维度PV（不存在时插入）
+     */
+    @Insert("<script>" +
+            "INSERT INTO t_access_stats_dimension (short_code, stat_date, dimension, dimension_value, pv) VALUES " +
+            "<foreach collection='stats' item='s' separator=','>" +
+            "(#{s.shortCode}, #{s.statDate}, #{s.dimension}, #{s.dimensionValue}, #{s.pv})" +
+            "</foreach> " +
+            "ON DUPLICATE KEY UPDATE pv = pv + VALUES(pv)" +
+            "</script>")
+    int upsertBatch(@Param("stats") List<AccessStatsDimension> stats);
+
+    /**
+     * 从原始访问日志重新汇总一天的维度PV（统计回填，覆盖写入，重复执行结果相同）
+     * 空值归入 Unknown，与增量聚合一致；column 只传入内部常量（device_type / browser）
+     */
+    @Insert("INSERT INTO t_access_stats_dimension (short_code, stat_date, dimension, dimension_value, pv) " +
+            "SELECT short_code, #{statDate}, #{dimension}, COALESCE(NULLIF(${column}, ''), 'Unknown'), COUNT(1) " +
+            "FROM t_access_log WHERE access_time >= #{from} AND access_time < #{to} " +
+            "GROUP BY short_code, COALESCE(NULLIF(${column}, ''), 'Unknown') " +
+            "ON DUPLICATE KEY UPDATE pv = VALUES(pv)")
+    int backfillFromAccessLog(@Param("statDate") LocalDate statDate, @Param("dimension") String dimension,
+                              @Param("column") String column,
+                              @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * 按设备类型统计
+     */
+    @Select("SELECT dimension_value as device_type, SUM(pv) as count FROM t_access_stats_dimension " +
+            "WHERE short_code = #{shortCode} AND dimension = 'device_type' GROUP BY dimension_value")
+    List<Map<String, Object>> sumByDeviceType(@Param("shortCode") String shortCode);
+
+    /**
+     * 按浏览器统计
+     */
+    @Select("SELECT dimension_value as browser, SUM(pv) as count FROM t_access_stats_dimension " +
+            "WHERE short_code = #{shortCode} AND dimension = 'browser' " +
+            "GROUP BY dimension_value ORDER BY count DESC LIMIT 10")
+    List<Map<String, Object>> sumByBrowser(@Param("shortCode") String shortCode);
+}
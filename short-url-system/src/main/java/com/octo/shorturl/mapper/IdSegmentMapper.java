@@ -25,5 +25,13 @@ public interface IdSegmentMapper extends BaseMapper<IdSegment> {
     @Update("UPDATE t_id_segment SET max_id = max_id + step, version = version + 1 " +
             "WHERE biz_tag = #{bizTag} AND version = #{version}")
     int updateMaxId(@Param("bizTag") String bizTag, @Param("version") Integer version);
+
+    /**
+     * 按指定步长获取并更新号段（乐观锁），用于动态步长
+     */
+    @Update("UPDATE t_id_segment SET max_id = max_id + #{step}, version = version + 1 " +
+            "WHERE biz_tag = #{bizTag} AND version = #{version}")
+    int updateMaxIdByStep(@Param("bizTag") String bizTag, @Param("step") int step,
+                          @Param("version") Integer version);
 }
 
@@ -0,0 +1,67 @@
+package com.octo.shorturl.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.octo.shorturl.entity.LongUrlMapping;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 长链接映射Mapper（调用前需通过 ShardRouter 绑定分片）
+ */
+@Mapper
+public interface LongUrlMappingMapper extends BaseMapper<LongUrlMapping> {
+
+    /**
+     * 根据长链接Hash查询短码
+     */
+    @Select("SELECT short_code FROM t_long_url_mapping WHERE long_url_hash = #{hash}")
+    List<String> findShortCodes(@Param("hash") String hash);
+
+    /**
+     * 根据长链接Hash批量查询
+     */
+    @Select("<script>" +
+            "SELECT long_url_hash, short_code FROM t_long_url_mapping WHERE long_url_hash IN " +
+            "<foreach collection='hashes' item='hash' open='(' separator=',' close=')'>#{hash}</foreach>" +
+            "</script>")
+    List<LongUrlMapping> findByHashes(@Param("hashes") Collection<String> hashes);
+
+    /**
+     * 批量插入（多行INSERT）
+     */
+    @Insert("<script>" +
+            "INSERT INTO t_long_url_mapping (long_url_hash, short_code) VALUES " +
+            "<foreach collection='mappings' item='m' separator=','>" +
+            "(#{m.longUrlHash}, #{m.shortCode})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("mappings") List<LongUrlMapping> mappings);
+
+    /**
+     * 批量插入，已存在的映射跳过（回填映射表，可重复执行）
+     */
+    @Insert("<script>" +
+            "INSERT IGNORE INTO t_long_url_mapping (long_url_hash, short_code) VALUES " +
+            "<foreach collection='mappings' item='m' separator=','>" +
+            "(#{m.longUrlHash}, #{m.shortCode})" +
+            "</foreach>" +
+            "</script>")
+    int insertIgnoreBatch(@Param("mappings") List<LongUrlMapping> mappings);
+
+    /**
+     * 批量删除映射（短链接过期后不再参与去重）
+     */
+    @Delete("<script>" +
+            "DELETE FROM t_long_url_mapping WHERE (long_url_hash, short_code) IN " +
+            "<foreach collection='mappings' item='m' open='(' separator=',' close=')'>" +
+            "(#{m.longUrlHash}, #{m.shortCode})" +
+            "</foreach>" +
+            "</script>")
+    int deleteBatch(@Param("mappings") List<LongUrlMapping> mappings);
+}
@@ -2,12 +2,18 @@ package com.octo.shorturl.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.octo.shorturl.entity.ShortUrl;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 /**
- * 短链接Mapper
+ * 短链接Mapper（调用前需通过 ShardRouter 绑定分片）
  */
 @Mapper
 public interface ShortUrlMapper extends BaseMapper<ShortUrl> {
@@ -19,15 +25,85 @@ public interface ShortUrlMapper extends BaseMapper<ShortUrl> {
     ShortUrl findByShortCode(@Param("shortCode") String shortCode);
 
     /**
-     * 根据长链接Hash查询（去重）
+     * 根据短码批量查询
+     */
+    @Select("<script>" +
+            "SELECT * FROM t_short_url WHERE status = 1 AND short_code IN " +
+            "<foreach collection='codes' item='code' open='(' separator=',' close=')'>#{code}</foreach>" +
+            "</script>")
+    List<ShortUrl> findByShortCodes(@Param("codes") Collection<String> codes);
+
+    /**
+     * 根据长链接Hash查询（映射表迁移完成前的去重兜底，升级前的库上有 idx_long_url_hash 索引）
      */
     @Select("SELECT * FROM t_short_url WHERE long_url_hash = #{hash} AND status = 1 LIMIT 1")
     ShortUrl findByLongUrlHash(@Param("hash") String hash);
 
+    /**
+     * 根据长链接Hash批量查询（映射表迁移完成前的去重兜底）
+     */
+    @Select("<script>" +
+            "SELECT * FROM t_short_url WHERE status = 1 AND long_url_hash IN " +
+            "<foreach collection='hashes' item='hash' open='(' separator=',' close=')'>#{hash}</foreach>" +
+            "</script>")
+    List<ShortUrl> findByLongUrlHashes(@Param("hashes") Collection<String> hashes);
+
+    /**
+     * 按ID分页查询正常状态短链接的长链接Hash（回填长链接映射表）
+     */
+    @Select("SELECT id, short_code, long_url_hash FROM t_short_url WHERE id > #{lastId} AND status = 1 " +
+            "ORDER BY id LIMIT #{limit}")
+    List<ShortUrl> findHashesAfterId(@Param("lastId") long lastId, @Param("limit") int limit);
+
+    /**
+     * 批量插入（多行INSERT）
+     */
+    @Insert("<script>" +
+            "INSERT INTO t_short_url (id, short_code, long_url, long_url_hash, domain, creator_id, expire_time, status) VALUES " +
+            "<foreach collection='urls' item='u' separator=','>" +
+            "(#{u.id}, #{u.shortCode}, #{u.longUrl}, #{u.longUrlHash}, #{u.domain}, #{u.creatorId}, #{u.expireTime}, #{u.status})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("urls") List<ShortUrl> urls);
+
     /**
      * 检查短码是否存在
      */
     @Select("SELECT COUNT(1) FROM t_short_url WHERE short_code = #{shortCode}")
     int checkShortCodeExists(@Param("shortCode") String shortCode);
-}
 
+    /**
+     * 按ID分页查询正常状态的短码（重建布隆过滤器副本，已禁用、已过期的短码不再进入）
+     */
+    @Select("SELECT id, short_code FROM t_short_url WHERE id > #{lastId} AND status = 1 ORDER BY id LIMIT #{limit}")
+    List<ShortUrl> findCodesAfterId(@Param("lastId") long lastId, @Param("limit") int limit);
+
+    /**
+     * 当前最大ID（布隆过滤器副本已追平的ID水位）
+     */
+    @Select("SELECT COALESCE(MAX(id), 0) FROM t_short_url")
+    long selectMaxId();
+
+    /**
+     * 查询指定时间之后创建的短码（布隆过滤器副本追平）
+     */
+    @Select("SELECT short_code FROM t_short_url WHERE create_time >= #{since}")
+    List<String> findCodesCreatedSince(@Param("since") LocalDateTime since);
+
+    /**
+     * 查询过期时间落在 [from, to) 内、尚未标记的短链接
+     */
+    @Select("SELECT id, short_code, long_url_hash FROM t_short_url WHERE status = 1 " +
+            "AND expire_time >= #{from} AND expire_time < #{to} LIMIT #{limit}")
+    List<ShortUrl> findExpired(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                               @Param("limit") int limit);
+
+    /**
+     * 批量标记为已过期
+     */
+    @Update("<script>" +
+            "UPDATE t_short_url SET status = 2 WHERE status = 1 AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int markExpired(@Param("ids") Collection<Long> ids);
+}
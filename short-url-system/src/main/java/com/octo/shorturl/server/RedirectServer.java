@@ -0,0 +1,117 @@
+package com.octo.shorturl.server;
+
+import com.octo.shorturl.service.AccessStatService;
+import com.octo.shorturl.service.ReactiveShortUrlService;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.net.InetSocketAddress;
+import java.util.Optional;
+
+/**
+ * 独立重定向服务（Reactor Netty）
+ *
+ * 面试要点：重定向是读多写少的纯IO请求，为什么不用Tomcat？
+ * - Tomcat每个请求占用一个线程，线程在等待Redis响应期间什么都不做，并发上限受线程池大小限制
+ * - 重定向服务运行在Netty事件循环上，少量线程即可支撑大量并发连接
+ *
+ * 实现：
+ * 1. 只提供 GET /{shortCode}，不经过Spring MVC的过滤器链、拦截器和参数解析
+ * 2. 查询由 {@link ReactiveShortUrlService} 完成，语义与 /{shortCode} 接口一致
+ * 3. 访问日志只入队（{@link AccessStatService#recordAccess}），写库在后台批量线程完成
+ * 4. 管理接口仍由原有Spring MVC服务提供，两者共享缓存、布隆过滤器和访问日志缓冲区
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "short-url.redirect-server", name = "enabled", havingValue = "true")
+public class RedirectServer {
+
+    private final ReactiveShortUrlService reactiveShortUrlService;
+    private final AccessStatService accessStatService;
+
+    @Value("${short-url.redirect-server.port}")
+    private int port;
+
+    /**
+     * 短码最大长度
+     */
+    private static final int MAX_CODE_LENGTH = 10;
+
+    private DisposableServer server;
+
+    @PostConstruct
+    public void start() {
+        server = HttpServer.create()
+                .port(port)
+                .route(routes -> routes.get("/{shortCode}", this::redirect))
+                .bindNow();
+        log.info("独立重定向服务已启动: port={}", server.port());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    private Mono<Void> redirect(HttpServerRequest request, HttpServerResponse response) {
+        String shortCode = request.param("shortCode");
+        if (!isValidCode(shortCode)) {
+            return response.status(HttpResponseStatus.NOT_FOUND).send();
+        }
+
+        return reactiveShortUrlService.getLongUrl(shortCode)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(longUrl -> {
+                    if (longUrl.isEmpty()) {
+                        return response.status(HttpResponseStatus.NOT_FOUND).send().then();
+                    }
+                    recordAccess(shortCode, request);
+                    return response.status(HttpResponseStatus.FOUND)
+                            .header(HttpHeaderNames.LOCATION, longUrl.get())
+                            .send()
+                            .then();
+                })
+                .onErrorResume(e -> {
+                    log.error("重定向失败: shortCode={}", shortCode, e);
+                    return response.status(HttpResponseStatus.INTERNAL_SERVER_ERROR).send().then();
+                });
+    }
+
+    private void recordAccess(String shortCode, HttpServerRequest request) {
+        InetSocketAddress remoteAddress = request.remoteAddress();
+        String remoteAddr = remoteAddress == null ? null : remoteAddress.getAddress().getHostAddress();
+        String ip = AccessStatService.getClientIp(request.requestHeaders()::get, remoteAddr);
+        accessStatService.recordAccess(shortCode, ip,
+                request.requestHeaders().get(HttpHeaderNames.USER_AGENT),
+                request.requestHeaders().get(HttpHeaderNames.REFERER));
+    }
+
+    private static boolean isValidCode(String shortCode) {
+        if (shortCode == null || shortCode.isEmpty() || shortCode.length() > MAX_CODE_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < shortCode.length(); i++) {
+            char c = shortCode.charAt(i);
+            if (!(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'z') && !(c >= 'A' && c <= 'Z')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
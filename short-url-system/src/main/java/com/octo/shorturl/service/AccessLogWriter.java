@@ -0,0 +1,290 @@
+package com.octo.shorturl.service;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.octo.shorturl.entity.AccessLog;
+import com.octo.shorturl.mapper.AccessLogMapper;
+import eu.bitwalker.useragentutils.Browser;
+import eu.bitwalker.useragentutils.DeviceType;
+import eu.bitwalker.useragentutils.OperatingSystem;
+import eu.bitwalker.useragentutils.UserAgent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 访问日志批量写入
+ *
+ * 面试要点：热门短链每秒几千次点击，访问日志怎么写？
+ *
+ * 1. 有界缓冲区
+ *    - 请求线程只提取IP、User-Agent等原始字段放入内存有界队列，不解析、不访问数据库
+ *    - 缓冲区有界，流量高峰时按溢出策略丢弃，不会像无界任务队列一样堆积直至OOM
+ *
+ * 2. 批量写入
+ *    - 单个写入线程攒够 batch-size 条或等待 flush-interval-millis 后，一条多行INSERT写入
+ *    - 每秒几千次单行INSERT变为每秒几次批量INSERT，事务和网络往返开销成倍下降
+ *
+ * 3. User-Agent解析缓存
+ *    - 同一款浏览器的UA字符串完全相同，解析结果按UA字符串缓存，命中时不再做正则匹配
+ *
+ * 4. 统计预聚合
+ *    - 每批日志写入后交给 {@link AccessStatsRollupService} 增量更新按天汇总的PV/UV/设备/浏览器
+ *
+ * 5. 溢出策略（overflow-policy）
+ *    - DROP：缓冲区满时丢弃新日志
+ *    - SAMPLE：缓冲区超过水位线后按 1/sample-rate 采样写入，缓冲区满时丢弃
+ *    - 丢弃、采样、写入失败分别计数，定时输出
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AccessLogWriter {
+
+    private final AccessLogMapper accessLogMapper;
+    private final AccessStatsRollupService rollupService;
+
+    @Value("${short-url.access-log.buffer-size}")
+    private int bufferSize;
+
+    @Value("${short-url.access-log.batch-size}")
+    private int batchSize;
+
+    @Value("${short-url.access-log.flush-interval-millis}")
+    private long flushIntervalMillis;
+
+    @Value("${short-url.access-log.overflow-policy}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${short-url.access-log.sample-watermark}")
+    private double sampleWatermark;
+
+    @Value("${short-url.access-log.sample-rate}")
+    private int sampleRate;
+
+    @Value("${short-url.access-log.user-agent-cache-size}")
+    private long userAgentCacheSize;
+
+    /**
+     * t_access_log 中 user_agent、referer 的列长度
+     */
+    private static final int MAX_HEADER_LENGTH = 500;
+
+    /**
+     * 溢出策略
+     */
+    public enum OverflowPolicy {
+        /**
+         * 缓冲区满时丢弃
+         */
+        DROP,
+        /**
+         * 超过水位线后采样写入，缓冲区满时丢弃
+         */
+        SAMPLE
+    }
+
+    /**
+     * 待写入日志缓冲区
+     */
+    private BlockingQueue<AccessLog> buffer;
+
+    /**
+     * 采样起始水位（缓冲区中的条数）
+     */
+    private int sampleThreshold;
+
+    /**
+     * User-Agent解析结果缓存
+     */
+    private LoadingCache<String, UserAgentInfo> userAgentCache;
+
+    private Thread writer;
+
+    private volatile boolean running = true;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder sampledOut = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        buffer = new ArrayBlockingQueue<>(bufferSize);
+        sampleThreshold = (int) (bufferSize * sampleWatermark);
+        userAgentCache = CacheBuilder.newBuilder()
+                .maximumSize(userAgentCacheSize)
+                .build(CacheLoader.from(AccessLogWriter::parseUserAgent));
+
+        writer = new Thread(this::runWriter, "access-log-writer");
+        writer.start();
+        log.info("访问日志写入线程已启动: bufferSize={}, batchSize={}, flushIntervalMillis={}, overflowPolicy={}",
+                bufferSize, batchSize, flushIntervalMillis, overflowPolicy);
+    }
+
+    /**
+     * 提交访问日志（请求线程调用，不阻塞）
+     *
+     * @return 是否进入缓冲区
+     */
+    public boolean submit(AccessLog accessLog) {
+        if (overflowPolicy == OverflowPolicy.SAMPLE && buffer.size() >= sampleThreshold
+                && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            sampledOut.increment();
+            return false;
+        }
+        if (!buffer.offer(accessLog)) {
+            dropped.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 写入线程：攒够一批或等待超时后批量写入
+     */
+    private void runWriter() {
+        List<AccessLog> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                AccessLog first = buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collect(batch);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 从第一条日志开始最多等待 flush-interval-millis，攒够 batch-size 条提前结束
+     */
+    private void collect(List<AccessLog> batch) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + flushIntervalMillis;
+        while (batch.size() < batchSize) {
+            buffer.drainTo(batch, batchSize - batch.size());
+            long waitMillis = deadline - System.currentTimeMillis();
+            if (batch.size() >= batchSize || waitMillis <= 0) {
+                return;
+            }
+            AccessLog next = buffer.poll(waitMillis, TimeUnit.MILLISECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    /**
+     * 解析User-Agent后批量写入并增量聚合，写入失败的日志丢弃（访问日志允许少量丢失，不阻塞后续写入）
+     */
+    private void flush(List<AccessLog> batch) {
+        for (AccessLog accessLog : batch) {
+            fillUserAgent(accessLog);
+        }
+        try {
+            accessLogMapper.insertBatch(batch);
+            written.add(batch.size());
+            log.debug("批量写入访问日志: count={}", batch.size());
+        } catch (Exception e) {
+            failed.add(batch.size());
+            log.error("批量写入访问日志失败: count={}", batch.size(), e);
+        }
+        rollupService.rollup(batch);
+    }
+
+    private void fillUserAgent(AccessLog accessLog) {
+        String userAgent = truncate(accessLog.getUserAgent());
+        accessLog.setUserAgent(userAgent);
+        accessLog.setReferer(truncate(accessLog.getReferer()));
+        if (userAgent == null || userAgent.isEmpty()) {
+            return;
+        }
+        UserAgentInfo info = userAgentCache.getUnchecked(userAgent);
+        accessLog.setBrowser(info.browser);
+        accessLog.setOs(info.os);
+        accessLog.setDeviceType(info.deviceType);
+    }
+
+    /**
+     * 定时输出写入情况，有丢弃或失败时告警
+     */
+    @Scheduled(fixedRate = 60000)
+    public void report() {
+        long droppedCount = dropped.sumThenReset();
+        long sampledOutCount = sampledOut.sumThenReset();
+        long failedCount = failed.sumThenReset();
+        long writtenCount = written.sumThenReset();
+        if (droppedCount > 0 || sampledOutCount > 0 || failedCount > 0) {
+            log.warn("访问日志未完整写入: written={}, dropped={}, sampledOut={}, failed={}, buffered={}",
+                    writtenCount, droppedCount, sampledOutCount, failedCount, buffer.size());
+        } else if (writtenCount > 0) {
+            log.info("访问日志写入: written={}, buffered={}", writtenCount, buffer.size());
+        }
+    }
+
+    /**
+     * 停止写入线程，缓冲区中剩余的日志写入后退出
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join(flushIntervalMillis * 5);
+    }
+
+    private static String truncate(String value) {
+        if (value == null || value.length() <= MAX_HEADER_LENGTH) {
+            return value;
+        }
+        return value.substring(0, MAX_HEADER_LENGTH);
+    }
+
+    private static UserAgentInfo parseUserAgent(String userAgentStr) {
+        UserAgent userAgent = UserAgent.parseUserAgentString(userAgentStr);
+        UserAgentInfo info = new UserAgentInfo();
+
+        Browser browser = userAgent.getBrowser();
+        if (browser != null) {
+            info.browser = browser.getName();
+        }
+
+        OperatingSystem os = userAgent.getOperatingSystem();
+        if (os != null) {
+            info.os = os.getName();
+            DeviceType deviceType = os.getDeviceType();
+            if (deviceType != null) {
+                info.deviceType = deviceType.getName();
+            }
+        }
+        return info;
+    }
+
+    /**
+     * User-Agent解析结果
+     */
+    private static final class UserAgentInfo {
+        private String browser;
+        private String os;
+        private String deviceType;
+    }
+}
@@ -1,57 +1,52 @@
 package com.octo.shorturl.service;
 
 import com.octo.shorturl.entity.AccessLog;
-import com.octo.shorturl.mapper.AccessLogMapper;
-import eu.bitwalker.useragentutils.Browser;
-import eu.bitwalker.useragentutils.DeviceType;
-import eu.bitwalker.useragentutils.OperatingSystem;
-import eu.bitwalker.useragentutils.UserAgent;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.function.UnaryOperator;
 
 /**
  * 访问统计服务
  * 
- * 记录访问日志，提供统计分析
+ * 记录访问日志，提供统计分析（统计数据来自 {@link AccessStatsRollupService} 的预聚合结果）
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class AccessStatService {
 
-    private final AccessLogMapper accessLogMapper;
+    private final AccessLogWriter accessLogWriter;
+    private final AccessStatsRollupService rollupService;
 
     /**
-     * 异步记录访问日志
+     * 记录访问日志
+     * 在请求线程上只提取请求头（请求结束后HttpServletRequest会被回收，不能交给其他线程读取），
+     * 解析User-Agent和写库由 {@link AccessLogWriter} 批量完成
      */
-    @Async
     public void recordAccess(String shortCode, HttpServletRequest request) {
-        try {
-            AccessLog accessLog = new AccessLog();
-            accessLog.setShortCode(shortCode);
-            accessLog.setIp(getClientIp(request));
-            accessLog.setUserAgent(request.getHeader("User-Agent"));
-            accessLog.setReferer(request.getHeader("Referer"));
-            accessLog.setAccessTime(LocalDateTime.now());
+        recordAccess(shortCode, getClientIp(request::getHeader, request.getRemoteAddr()),
+                request.getHeader("User-Agent"), request.getHeader("Referer"));
+    }
 
-            // 解析User-Agent
-            parseUserAgent(accessLog);
+    /**
+     * 记录访问日志（只入队，不阻塞，可在事件循环线程调用）
+     */
+    public void recordAccess(String shortCode, String ip, String userAgent, String referer) {
+        AccessLog accessLog = new AccessLog();
+        accessLog.setShortCode(shortCode);
+        accessLog.setIp(ip);
+        accessLog.setUserAgent(userAgent);
+        accessLog.setReferer(referer);
+        accessLog.setAccessTime(LocalDateTime.now());
 
-            accessLogMapper.insert(accessLog);
-            
-            log.debug("记录访问日志: shortCode={}, ip={}", shortCode, accessLog.getIp());
-        } catch (Exception e) {
-            log.error("记录访问日志失败", e);
-        }
+        accessLogWriter.submit(accessLog);
     }
 
     /**
@@ -61,19 +56,19 @@ public class AccessStatService {
         Map<String, Object> stats = new HashMap<>();
         
         // PV和UV
-        stats.put("pv", accessLogMapper.countPv(shortCode));
-        stats.put("uv", accessLogMapper.countUv(shortCode));
+        stats.put("pv", rollupService.getPv(shortCode));
+        stats.put("uv", rollupService.getUv(shortCode));
         
         // 最近7天的访问趋势
         LocalDate today = LocalDate.now();
-        stats.put("dailyPv", accessLogMapper.countPvByDate(shortCode, 
+        stats.put("dailyPv", rollupService.getDailyStats(shortCode,
                 today.minusDays(7), today.plusDays(1)));
         
         // 设备类型分布
-        stats.put("deviceTypes", accessLogMapper.countByDeviceType(shortCode));
+        stats.put("deviceTypes", rollupService.getDeviceTypes(shortCode));
         
         // 浏览器分布
-        stats.put("browsers", accessLogMapper.countByBrowser(shortCode));
+        stats.put("browsers", rollupService.getBrowsers(shortCode));
         
         return stats;
     }
@@ -82,58 +77,35 @@ public class AccessStatService {
      * 获取短链接PV
      */
     public long getPv(String shortCode) {
-        return accessLogMapper.countPv(shortCode);
+        return rollupService.getPv(shortCode);
     }
 
     /**
      * 获取短链接UV
      */
     public long getUv(String shortCode) {
-        return accessLogMapper.countUv(shortCode);
-    }
-
-    /**
-     * 解析User-Agent
-     */
-    private void parseUserAgent(AccessLog accessLog) {
-        String userAgentStr = accessLog.getUserAgent();
-        if (userAgentStr == null || userAgentStr.isEmpty()) {
-            return;
-        }
-
-        UserAgent userAgent = UserAgent.parseUserAgentString(userAgentStr);
-        
-        Browser browser = userAgent.getBrowser();
-        if (browser != null) {
-            accessLog.setBrowser(browser.getName());
-        }
-        
-        OperatingSystem os = userAgent.getOperatingSystem();
-        if (os != null) {
-            accessLog.setOs(os.getName());
-            DeviceType deviceType = os.getDeviceType();
-            if (deviceType != null) {
-                accessLog.setDeviceType(deviceType.getName());
-            }
-        }
+        return rollupService.getUv(shortCode);
     }
 
     /**
      * 获取客户端IP
+     *
+     * @param header 请求头读取方法
+     * @param remoteAddr 连接对端地址
      */
-    private String getClientIp(HttpServletRequest request) {
-        String ip = request.getHeader("X-Forwarded-For");
+    public static String getClientIp(UnaryOperator<String> header, String remoteAddr) {
+        String ip = header.apply("X-Forwarded-For");
         if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("Proxy-Client-IP");
+            ip = header.apply("Proxy-Client-IP");
         }
         if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("WL-Proxy-Client-IP");
+            ip = header.apply("WL-Proxy-Client-IP");
         }
         if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("X-Real-IP");
+            ip = header.apply("X-Real-IP");
         }
         if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getRemoteAddr();
+            ip = remoteAddr;
         }
         // 多个代理时，取第一个IP
         if (ip != null && ip.contains(",")) {
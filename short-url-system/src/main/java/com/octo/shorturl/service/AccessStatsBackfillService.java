@@ -0,0 +1,169 @@
+package com.octo.shorturl.service;
+
+import com.octo.shorturl.entity.AccessLog;
+import com.octo.shorturl.entity.AccessStatsDimension;
+import com.octo.shorturl.mapper.AccessLogMapper;
+import com.octo.shorturl.mapper.AccessStatsDailyMapper;
+import com.octo.shorturl.mapper.AccessStatsDimensionMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 访问统计回填
+ *
+ * 面试要点：从原始日志切换到预聚合表后，历史数据怎么办？
+ * - 预聚合只统计切换之后写入的日志，不回填的话存量短链接的PV/UV/趋势/分布全部归零
+ *
+ * 切换日（cutover）：
+ * 1. 新版本节点启动时把当天日期写入Redis（SET NX，以第一个启动的节点为准），当天起增量聚合开始生效
+ * 2. 切换日结束后，从最早的访问日志到切换日逐天用原始日志重新汇总：
+ *    - INSERT ... SELECT 覆盖写入 t_access_stats_daily、t_access_stats_dimension（切换日当天的增量结果一并被完整重算）
+ *    - 逐页查询当天的独立访客（短码 + IP）PFADD 到累计UV
+ * 3. 覆盖写入与PFADD都可以重复执行，进度按天记录在Redis，中断后从断点继续；全部完成后写入完成标记
+ *
+ * 等到切换日结束才回填：回填涉及的日期不会再有增量聚合并发写入，覆盖写入不会与之冲突
+ * 注意：滚动发布需在切换日当天完成，次日仍在运行的旧版本节点写入的日志不会被聚合
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AccessStatsBackfillService {
+
+    private final AccessLogMapper accessLogMapper;
+    private final AccessStatsDailyMapper dailyMapper;
+    private final AccessStatsDimensionMapper dimensionMapper;
+    private final AccessStatsRollupService rollupService;
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${short-url.stats.backfill.enabled}")
+    private boolean enabled;
+
+    @Value("${short-url.stats.backfill.key-prefix}")
+    private String keyPrefix;
+
+    @Value("${short-url.stats.backfill.visitor-page-size}")
+    private int visitorPageSize;
+
+    /**
+     * 切换日结束后再等待的时间，保证切换日的缓冲日志已全部落库并完成增量聚合
+     */
+    private static final long SETTLE_MINUTES = 10;
+
+    /**
+     * 回填锁过期时间（每回填完一天续期）
+     */
+    private static final long LOCK_EXPIRE_MINUTES = 30;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 记录切换日（只有第一个启动的新版本节点写入成功）
+     */
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        redisTemplate.opsForValue().setIfAbsent(keyPrefix + "cutover", LocalDate.now().toString());
+    }
+
+    /**
+     * 定时检查并执行回填（每小时），完成后只剩一次Redis读取
+     */
+    @Scheduled(initialDelay = 60000, fixedDelay = 3600000)
+    public void backfill() {
+        if (!enabled || Boolean.TRUE.equals(redisTemplate.hasKey(keyPrefix + "done"))) {
+            return;
+        }
+        String cutoverValue = redisTemplate.opsForValue().get(keyPrefix + "cutover");
+        if (cutoverValue == null) {
+            return;
+        }
+        LocalDate cutover = LocalDate.parse(cutoverValue);
+        if (LocalDateTime.now().isBefore(cutover.plusDays(1).atStartOfDay().plusMinutes(SETTLE_MINUTES))) {
+            return;
+        }
+
+        String lockKey = keyPrefix + "lock";
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(lockKey, nodeId,
+                LOCK_EXPIRE_MINUTES, TimeUnit.MINUTES);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        try {
+            LocalDate date = getStartDate();
+            while (date != null && !date.isAfter(cutover)) {
+                backfillDay(date);
+                redisTemplate.opsForValue().set(keyPrefix + "progress", date.toString());
+                redisTemplate.expire(lockKey, LOCK_EXPIRE_MINUTES, TimeUnit.MINUTES);
+                date = date.plusDays(1);
+            }
+            redisTemplate.opsForValue().set(keyPrefix + "done", cutover.toString());
+            log.info("访问统计回填完成: cutover={}", cutover);
+        } catch (Exception e) {
+            log.error("访问统计回填失败，下次从断点继续", e);
+        } finally {
+            if (nodeId.equals(redisTemplate.opsForValue().get(lockKey))) {
+                redisTemplate.delete(lockKey);
+            }
+        }
+    }
+
+    /**
+     * 回填起点：已有进度时从下一天继续，否则从最早的访问日志开始；没有访问日志时返回null
+     */
+    private LocalDate getStartDate() {
+        String progress = redisTemplate.opsForValue().get(keyPrefix + "progress");
+        if (progress != null) {
+            return LocalDate.parse(progress).plusDays(1);
+        }
+        LocalDateTime first = accessLogMapper.findFirstAccessTime();
+        return first != null ? first.toLocalDate() : null;
+    }
+
+    /**
+     * 用原始日志重新汇总一天：覆盖写入聚合表，访客写入累计UV
+     */
+    private void backfillDay(LocalDate date) {
+        LocalDateTime from = date.atStartOfDay();
+        LocalDateTime to = from.plusDays(1);
+        int codes = dailyMapper.backfillFromAccessLog(date, from, to);
+        dimensionMapper.backfillFromAccessLog(date, AccessStatsDimension.DEVICE_TYPE, "device_type", from, to);
+        dimensionMapper.backfillFromAccessLog(date, AccessStatsDimension.BROWSER, "browser", from, to);
+
+        String lastCode = null;
+        String lastIp = null;
+        while (true) {
+            List<AccessLog> page = accessLogMapper.findVisitors(from, to, lastCode, lastIp, visitorPageSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            Map<String, List<String>> ipsByCode = new LinkedHashMap<>();
+            for (AccessLog visitor : page) {
+                ipsByCode.computeIfAbsent(visitor.getShortCode(), k -> new ArrayList<>()).add(visitor.getIp());
+            }
+            rollupService.seedTotalUv(ipsByCode);
+            if (page.size() < visitorPageSize) {
+                break;
+            }
+            AccessLog last = page.get(page.size() - 1);
+            lastCode = last.getShortCode();
+            lastIp = last.getIp();
+        }
+        log.info("访问统计回填: date={}, rows={}", date, codes);
+    }
+}
@@ -1,12 +1,40 @@
 package com.octo.shorturl.service;
 
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.octo.shorturl.entity.ShortUrl;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RBloomFilter;
 import org.redisson.api.RedissonClient;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.SubscriptionListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 布隆过滤器服务
@@ -31,13 +59,29 @@ import org.springframework.stereotype.Service;
  * 2. 缓存穿透防护：过滤不存在的Key
  * 3. 垃圾邮件过滤
  * 4. 爬虫URL去重
+ *
+ * 本地副本（bloom-filter.local.enabled=true）：
+ * - 问题：每次重定向都要先访问一次Redis布隆过滤器，遍历/乱码请求也要付出一次网络往返
+ * - 每个节点在JVM内维护一份Guava布隆过滤器副本（1000万元素、0.1%误判率约18MB），查询为纯内存操作
+ * - Redis布隆过滤器仍是权威数据，新增短码先写Redis，再写本地副本并通过Pub/Sub广播给其他节点
+ * - 启动时从Redis快照加载，再按创建时间从数据库追平快照之后的短码；没有快照时从数据库全量重建
+ * - 定时按创建时间从数据库追平，弥补Pub/Sub断线期间丢失的新增，保证副本不漏判
+ * - 由一个节点定时把本地副本写回Redis快照（抢占快照锁），供新节点启动使用
+ * - 副本加载完成前查询Redis布隆过滤器
+ * - 副本判定不存在时，以下情况仍回查Redis布隆过滤器，避免把刚创建的短码误判为不存在：
+ *   1. 短码解码出的ID高于上次追平时的ID水位（且不超过号段表已分配的上限，乱码请求不回查）
+ *   2. 上次追平以来Pub/Sub订阅断开过（断线期间的广播已丢失，下次追平前副本可能漏判）
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class BloomFilterService {
+public class BloomFilterService implements MessageListener, SubscriptionListener {
 
     private final RedissonClient redissonClient;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ShortUrlStore shortUrlStore;
+    private final ShortCodeGenerator codeGenerator;
 
     @Value("${short-url.bloom-filter.expected-insertions}")
     private long expectedInsertions;
@@ -48,8 +92,78 @@ public class BloomFilterService {
     @Value("${short-url.bloom-filter.key}")
     private String bloomFilterKey;
 
+    @Value("${short-url.bloom-filter.local.enabled}")
+    private boolean localEnabled;
+
+    @Value("${short-url.bloom-filter.local.channel}")
+    private String addChannel;
+
+    @Value("${short-url.bloom-filter.local.snapshot-key}")
+    private String snapshotKey;
+
+    @Value("${short-url.bloom-filter.local.snapshot-interval-seconds}")
+    private long snapshotIntervalSeconds;
+
+    @Value("${short-url.bloom-filter.local.sync-interval-seconds}")
+    private long syncIntervalSeconds;
+
+    /**
+     * 全量重建时每页查询的短码数
+     */
+    private static final int REBUILD_PAGE_SIZE = 10000;
+
+    /**
+     * 批量新增广播的元素分隔符
+     */
+    private static final String ADD_MESSAGE_SEPARATOR = "\n";
+
     private RBloomFilter<String> bloomFilter;
 
+    /**
+     * 本地副本，加载完成前为null
+     */
+    private volatile BloomFilter<CharSequence> localFilter;
+
+    /**
+     * 加载中的副本，加载期间收到的广播写入这里
+     */
+    private volatile BloomFilter<CharSequence> pendingFilter;
+
+    /**
+     * 副本已追平到的时间（应用时钟），下次从该时间减去追平间隔开始查询，覆盖时钟偏差和未提交事务
+     */
+    private volatile LocalDateTime syncedUntil;
+
+    /**
+     * 上次追平时数据库中的最大ID，高于该值的短码可能尚未进入副本
+     */
+    private volatile long syncedMaxId;
+
+    /**
+     * 上次追平时号段表已分配的ID上限（含余量），超过该值的短码不可能存在，不回查Redis
+     */
+    private volatile long allocatedIdBound;
+
+    /**
+     * 是否已订阅过新增广播频道，用于识别断线重连
+     */
+    private volatile boolean subscribedOnce;
+
+    /**
+     * 订阅断开/重连次数，断开期间的广播已丢失
+     */
+    private final AtomicLong subscriptionLosses = new AtomicLong();
+
+    /**
+     * 已被追平覆盖的断开次数，与 subscriptionLosses 不等说明上次追平以来订阅断开过
+     */
+    private volatile long coveredLosses;
+
+    /**
+     * 快照锁持有者标识
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
     @PostConstruct
     public void init() {
         bloomFilter = redissonClient.getBloomFilter(bloomFilterKey);
@@ -62,30 +176,111 @@ public class BloomFilterService {
             log.info("布隆过滤器初始化成功: key={}, expectedInsertions={}, falseProbability={}", 
                     bloomFilterKey, expectedInsertions, falseProbability);
         }
+
+        if (localEnabled) {
+            // 先订阅再加载快照，加载期间广播的新增写入新副本，不会遗漏
+            BloomFilter<CharSequence> replica = newLocalFilter();
+            pendingFilter = replica;
+            listenerContainer.addMessageListener(this, new ChannelTopic(addChannel));
+            Thread loader = new Thread(() -> loadReplica(replica), "bloom-filter-loader");
+            loader.setDaemon(true);
+            loader.start();
+        }
     }
 
     /**
      * 添加元素到布隆过滤器
+     * 先写Redis（权威数据），再写本地副本并广播给其他节点
      * 
      * @param element 元素
      * @return true-新增成功 false-可能已存在
      */
     public boolean add(String element) {
-        return bloomFilter.add(element);
+        boolean added = bloomFilter.add(element);
+        if (localEnabled) {
+            BloomFilter<CharSequence> replica = localFilter;
+            if (replica != null) {
+                replica.put(element);
+            }
+            redisTemplate.convertAndSend(addChannel, element);
+        }
+        return added;
+    }
+
+    /**
+     * 批量添加元素到布隆过滤器
+     * Redisson一次批量写入Redis，本地副本写入后一条广播消息携带全部元素（换行分隔）
+     *
+     * @param elements 元素
+     */
+    public void addAll(Collection<String> elements) {
+        if (elements.isEmpty()) {
+            return;
+        }
+        bloomFilter.add(elements);
+        if (localEnabled) {
+            BloomFilter<CharSequence> replica = localFilter;
+            if (replica != null) {
+                elements.forEach(replica::put);
+            }
+            redisTemplate.convertAndSend(addChannel, String.join(ADD_MESSAGE_SEPARATOR, elements));
+        }
     }
 
     /**
      * 判断元素是否可能存在
      * 
      * 注意：返回true可能误判，返回false一定不存在
+     * 本地副本已加载时为纯内存判断（副本未命中且可能漏判时回查Redis），未加载时查询Redis
      * 
      * @param element 元素
      * @return true-可能存在 false-一定不存在
      */
     public boolean mightContain(String element) {
+        BloomFilter<CharSequence> replica = localFilter;
+        if (replica != null) {
+            if (replica.mightContain(element)) {
+                return true;
+            }
+            if (!mayBeMissing(element)) {
+                return false;
+            }
+        }
         return bloomFilter.contains(element);
     }
 
+    /**
+     * 判断元素是否可能存在（响应式）
+     * 本地副本已加载时直接返回；否则查询Redis是阻塞调用，切换到弹性线程池执行，不占用事件循环线程
+     */
+    public Mono<Boolean> mightContainReactive(String element) {
+        BloomFilter<CharSequence> replica = localFilter;
+        if (replica != null) {
+            if (replica.mightContain(element)) {
+                return Mono.just(true);
+            }
+            if (!mayBeMissing(element)) {
+                return Mono.just(false);
+            }
+        }
+        return Mono.fromCallable(() -> bloomFilter.contains(element))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * 副本判定不存在的短码是否可能只是副本尚未收到（需要回查Redis）
+     */
+    private boolean mayBeMissing(String element) {
+        if (subscriptionLosses.get() != coveredLosses || !listenerContainer.isListening()) {
+            return true;
+        }
+        if (!codeGenerator.isWellFormed(element)) {
+            return false;
+        }
+        long id = codeGenerator.decode(element);
+        return id > syncedMaxId && id <= allocatedIdBound;
+    }
+
     /**
      * 获取布隆过滤器中的元素数量（估算）
      */
@@ -106,5 +301,189 @@ public class BloomFilterService {
     public double getFalseProbability() {
         return bloomFilter.getFalseProbability();
     }
-}
 
+    /**
+     * 接收其他节点的新增广播
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        BloomFilter<CharSequence> replica = localFilter;
+        if (replica == null) {
+            replica = pendingFilter;
+        }
+        if (replica != null) {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            for (String element : body.split(ADD_MESSAGE_SEPARATOR)) {
+                replica.put(element);
+            }
+        }
+    }
+
+    /**
+     * 订阅成功；非首次订阅说明发生过断线重连，断线期间的广播已丢失
+     */
+    @Override
+    public void onChannelSubscribed(byte[] channel, long count) {
+        if (subscribedOnce) {
+            subscriptionLosses.incrementAndGet();
+            log.warn("布隆过滤器广播频道重新订阅，下次追平前副本未命中时回查Redis");
+        }
+        subscribedOnce = true;
+    }
+
+    /**
+     * 订阅断开，下次追平前副本可能漏判
+     */
+    @Override
+    public void onChannelUnsubscribed(byte[] channel, long count) {
+        subscriptionLosses.incrementAndGet();
+        log.warn("布隆过滤器广播频道订阅断开，下次追平前副本未命中时回查Redis");
+    }
+
+    /**
+     * 加载本地副本：快照 + 数据库追平，没有快照时全量重建
+     */
+    private void loadReplica(BloomFilter<CharSequence> replica) {
+        try {
+            LocalDateTime loadStart = LocalDateTime.now();
+            LocalDateTime snapshotTime = readSnapshot(replica);
+            if (snapshotTime == null) {
+                rebuildFromDatabase(replica);
+                syncedUntil = loadStart;
+            } else {
+                syncedUntil = snapshotTime;
+            }
+            catchUp(replica);
+            localFilter = replica;
+            log.info("布隆过滤器本地副本加载完成: fromSnapshot={}, approximateCount={}",
+                    snapshotTime != null, replica.approximateElementCount());
+        } catch (Exception e) {
+            log.error("布隆过滤器本地副本加载失败，继续使用Redis布隆过滤器", e);
+        } finally {
+            pendingFilter = null;
+        }
+    }
+
+    /**
+     * 定时从数据库追平新增短码，弥补Pub/Sub断线期间丢失的广播
+     */
+    @Scheduled(fixedDelayString = "${short-url.bloom-filter.local.sync-interval-seconds}", timeUnit = TimeUnit.SECONDS)
+    public void syncReplica() {
+        BloomFilter<CharSequence> replica = localFilter;
+        if (replica == null) {
+            return;
+        }
+        try {
+            catchUp(replica);
+        } catch (Exception e) {
+            log.error("布隆过滤器本地副本追平失败", e);
+        }
+    }
+
+    /**
+     * 定时把本地副本写回Redis快照，只有抢到快照锁的节点写入
+     */
+    @Scheduled(fixedDelayString = "${short-url.bloom-filter.local.snapshot-interval-seconds}", timeUnit = TimeUnit.SECONDS)
+    public void saveSnapshot() {
+        BloomFilter<CharSequence> replica = localFilter;
+        if (replica == null) {
+            return;
+        }
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(snapshotKey + ":lock", nodeId,
+                snapshotIntervalSeconds, TimeUnit.SECONDS);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        try {
+            // 快照时间取追平时间，新节点从该时间开始追平
+            LocalDateTime snapshotTime = syncedUntil;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(snapshotTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            replica.writeTo(out);
+            out.flush();
+
+            byte[] key = snapshotKey.getBytes(StandardCharsets.UTF_8);
+            byte[] value = bytes.toByteArray();
+            redisTemplate.execute((RedisCallback<Object>) connection -> connection.stringCommands().set(key, value));
+            log.info("布隆过滤器快照已保存: size={}KB, snapshotTime={}", value.length / 1024, snapshotTime);
+        } catch (Exception e) {
+            log.error("布隆过滤器快照保存失败", e);
+        }
+    }
+
+    /**
+     * 读取Redis快照合并到副本
+     *
+     * @return 快照时间，没有快照时返回null
+     */
+    private LocalDateTime readSnapshot(BloomFilter<CharSequence> replica) throws IOException {
+        byte[] key = snapshotKey.getBytes(StandardCharsets.UTF_8);
+        byte[] value = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(key));
+        if (value == null) {
+            return null;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(value));
+        long snapshotMillis = in.readLong();
+        BloomFilter<CharSequence> snapshot = BloomFilter.readFrom(in, Funnels.stringFunnel(StandardCharsets.UTF_8));
+        if (!replica.isCompatible(snapshot)) {
+            // 容量或误判率配置已变更，快照作废
+            log.warn("布隆过滤器快照与当前配置不一致，从数据库重建");
+            return null;
+        }
+        replica.putAll(snapshot);
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(snapshotMillis), ZoneId.systemDefault());
+    }
+
+    /**
+     * 从数据库全量重建（逐个分片按ID分页，已禁用、已过期的短码不再进入副本）
+     */
+    private void rebuildFromDatabase(BloomFilter<CharSequence> replica) {
+        long total = 0;
+        for (int shard = 0; shard < shortUrlStore.getShardCount(); shard++) {
+            long lastId = 0;
+            while (true) {
+                List<ShortUrl> page = shortUrlStore.findCodesAfterId(shard, lastId, REBUILD_PAGE_SIZE);
+                for (ShortUrl shortUrl : page) {
+                    replica.put(shortUrl.getShortCode());
+                }
+                total += page.size();
+                if (page.size() < REBUILD_PAGE_SIZE) {
+                    break;
+                }
+                lastId = page.get(page.size() - 1).getId();
+            }
+        }
+        log.info("布隆过滤器本地副本从数据库重建: total={}", total);
+    }
+
+    /**
+     * 按创建时间追平：查询 syncedUntil 减去一个追平间隔之后创建的短码
+     * ID水位在查询短码之前读取，水位以内的短码都已在本次追平中进入副本；
+     * 开始追平时订阅正常，则此前的断线已被本次追平覆盖；追平期间再断线的次数留给下一次
+     */
+    private void catchUp(BloomFilter<CharSequence> replica) {
+        long losses = subscriptionLosses.get();
+        boolean listening = listenerContainer.isListening();
+        LocalDateTime now = LocalDateTime.now();
+        long maxId = shortUrlStore.findMaxId();
+        long idBound = codeGenerator.getAllocatedIdBound();
+        List<String> codes = shortUrlStore.findCodesCreatedSince(syncedUntil.minusSeconds(syncIntervalSeconds));
+        for (String code : codes) {
+            replica.put(code);
+        }
+        syncedUntil = now;
+        syncedMaxId = maxId;
+        allocatedIdBound = idBound;
+        if (listening) {
+            coveredLosses = losses;
+        }
+        if (!codes.isEmpty()) {
+            log.debug("布隆过滤器本地副本追平: count={}", codes.size());
+        }
+    }
+
+    private BloomFilter<CharSequence> newLocalFilter() {
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions, falseProbability);
+    }
+}
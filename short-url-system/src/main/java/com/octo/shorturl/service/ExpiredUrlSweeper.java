@@ -0,0 +1,209 @@
+package com.octo.shorturl.service;
+
+import com.octo.shorturl.entity.ShortUrl;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 过期短链接清理
+ *
+ * 面试要点：短链接过期后，缓存和数据库里的数据怎么处理？
+ * - 只在访问时检查过期，没人访问的过期链接会一直占着Redis缓存、本地缓存和数据库Buffer Pool
+ *
+ * 主动清理：
+ * 1. 按过期时间分桶
+ *    - 清理进度（已清理到的时间点）保存在Redis，每次从进度开始按 bucket-seconds 逐桶推进到当前时间
+ *    - 每个桶在各分片上走 (status, expire_time) 索引范围扫描，只扫描刚过期的数据
+ * 2. 每桶分批处理，每批：
+ *    - 一条UPDATE标记为已过期（status=2），删除长链接映射，过期链接不再参与去重
+ *    - 一次Redis管道删除缓存Key
+ *    - 一条Pub/Sub广播通知所有实例删除本地缓存
+ *    - 已标记的行不再满足 status=1，下一批重新查询即可，不需要分页游标
+ * 3. 多实例部署时只有抢到清理锁的节点执行；重复执行也只会处理 status=1 的行
+ *    - 每处理完一个桶续期一次，续期失败（锁已过期被其他节点抢走）立即停止
+ *    - 结束时只删除自己持有的锁（比较值后删除），不会误删其他节点的锁
+ * 4. 首次运行（没有清理进度）只回看 first-run-look-back-days 天，避免一次扫描全部历史数据
+ *
+ * 布隆过滤器不支持删除，过期短码仍会通过布隆过滤器判断，由数据库查询后写入空值缓存兜底；
+ * 本地副本从数据库重建时只加载正常状态的短码
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExpiredUrlSweeper {
+
+    private final ShortUrlStore shortUrlStore;
+    private final ShortUrlService shortUrlService;
+    private final LocalUrlCacheService localCache;
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${short-url.expiry-sweeper.enabled}")
+    private boolean enabled;
+
+    @Value("${short-url.expiry-sweeper.interval-seconds}")
+    private long intervalSeconds;
+
+    @Value("${short-url.expiry-sweeper.bucket-seconds}")
+    private long bucketSeconds;
+
+    @Value("${short-url.expiry-sweeper.batch-size}")
+    private int batchSize;
+
+    @Value("${short-url.expiry-sweeper.cursor-key}")
+    private String cursorKey;
+
+    @Value("${short-url.expiry-sweeper.first-run-look-back-days}")
+    private long firstRunLookBackDays;
+
+    /**
+     * 续期Lua脚本：锁仍由当前节点持有时才续期
+     */
+    private static final DefaultRedisScript<Long> RENEW_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+            "    return redis.call('EXPIRE', KEYS[1], ARGV[2]) " +
+            "end " +
+            "return 0",
+            Long.class);
+
+    /**
+     * 释放锁Lua脚本：锁仍由当前节点持有时才删除
+     */
+    private static final DefaultRedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+            "    return redis.call('DEL', KEYS[1]) " +
+            "end " +
+            "return 0",
+            Long.class);
+
+    /**
+     * 当前节点标识（清理锁的值）
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 定时清理：从上次进度逐桶推进到当前时间
+     */
+    @Scheduled(fixedDelayString = "${short-url.expiry-sweeper.interval-seconds}", timeUnit = TimeUnit.SECONDS)
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        String lockKey = cursorKey + ":lock";
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(lockKey, nodeId,
+                intervalSeconds, TimeUnit.SECONDS);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            // 没有进度时（首次运行）只回看 first-run-look-back-days 天
+            LocalDateTime from = readCursor();
+            if (from == null) {
+                from = now.minusDays(firstRunLookBackDays);
+            }
+            long total = 0;
+            while (from.isBefore(now)) {
+                LocalDateTime to = min(from.plusSeconds(bucketSeconds), now);
+                total += sweepBucket(from, to);
+                writeCursor(to);
+                from = to;
+                if (from.isBefore(now) && !renewLock(lockKey)) {
+                    log.warn("过期短链接清理锁已丢失，停止本轮清理: until={}", from);
+                    break;
+                }
+            }
+
+            if (total > 0) {
+                log.info("过期短链接清理完成: count={}, until={}", total, from);
+            }
+        } catch (Exception e) {
+            log.error("过期短链接清理失败", e);
+        } finally {
+            redisTemplate.execute(RELEASE_LOCK_SCRIPT, List.of(lockKey), nodeId);
+        }
+    }
+
+    /**
+     * 续期清理锁
+     *
+     * @return false-锁已不属于当前节点
+     */
+    private boolean renewLock(String lockKey) {
+        Long renewed = redisTemplate.execute(RENEW_LOCK_SCRIPT, List.of(lockKey), nodeId,
+                String.valueOf(intervalSeconds));
+        return renewed != null && renewed == 1;
+    }
+
+    /**
+     * 清理过期时间落在 [from, to) 内的短链接
+     */
+    private long sweepBucket(LocalDateTime from, LocalDateTime to) {
+        long swept = 0;
+        for (int shard = 0; shard < shortUrlStore.getShardCount(); shard++) {
+            while (true) {
+                List<ShortUrl> batch = shortUrlStore.findExpired(shard, from, to, batchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                int marked = shortUrlStore.markExpired(shard, batch);
+                evictCaches(batch);
+                swept += marked;
+                // 未标记的行已被并发修改（如禁用），不会再被查到；一行都没标记时停止，避免空转
+                if (batch.size() < batchSize || marked == 0) {
+                    break;
+                }
+            }
+        }
+        return swept;
+    }
+
+    /**
+     * 管道删除Redis缓存，广播删除本地缓存
+     */
+    private void evictCaches(List<ShortUrl> batch) {
+        List<String> codes = new ArrayList<>(batch.size());
+        for (ShortUrl shortUrl : batch) {
+            codes.add(shortUrl.getShortCode());
+        }
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (String code : codes) {
+                conn.del(shortUrlService.getCacheKey(code));
+            }
+            return null;
+        });
+        localCache.invalidateAll(codes);
+    }
+
+    private LocalDateTime readCursor() {
+        String value = redisTemplate.opsForValue().get(cursorKey);
+        if (value == null) {
+            return null;
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong(value)), ZoneId.systemDefault());
+    }
+
+    private void writeCursor(LocalDateTime cursor) {
+        redisTemplate.opsForValue().set(cursorKey,
+                String.valueOf(cursor.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()));
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
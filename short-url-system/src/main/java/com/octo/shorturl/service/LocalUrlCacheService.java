@@ -0,0 +1,278 @@
+package com.octo.shorturl.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 短链接本地缓存服务（JVM一级缓存）
+ *
+ * 面试要点：爆款链接的千万次访问都打到同一个Redis Key怎么办？
+ *
+ * 1. 一级缓存（Guava Cache）
+ *    - 短码 → 长链接映射缓存在JVM内，按容量（LRU）和写入时间淘汰
+ *    - 命中时不经过布隆过滤器和Redis，重定向没有任何网络往返
+ *
+ * 2. 热点探测
+ *    - 每个统计窗口内按短码计数，窗口结束时取访问量Top-N且超过阈值的短码
+ *    - 热点短码放入常驻表，不受容量淘汰影响；跌出Top-N后移出常驻表
+ *    - 每个窗口用一次MGET从Redis校验常驻表，已删除或过期的短码随之移出
+ *    - 计数表有上限，满了之后本窗口不再追踪新短码（爆款链接访问密集，总能在窗口早期进入计数表）
+ *
+ * 3. 失效广播
+ *    - 短链接禁用、过期时通过Redis Pub/Sub通知所有实例删除本地缓存（过期清理一批短码合并为一条广播）
+ *    - 失效版本号：回源期间收到失效通知时放弃写入本地缓存，避免旧值在失效之后被写回
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LocalUrlCacheService implements MessageListener {
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    @Value("${short-url.cache.prefix}")
+    private String cachePrefix;
+
+    @Value("${short-url.local-cache.maximum-size}")
+    private long maximumSize;
+
+    @Value("${short-url.local-cache.expire-seconds}")
+    private long expireSeconds;
+
+    @Value("${short-url.local-cache.invalidate-channel}")
+    private String invalidateChannel;
+
+    @Value("${short-url.local-cache.hot-key.top-n}")
+    private int hotKeyTopN;
+
+    @Value("${short-url.local-cache.hot-key.min-hits}")
+    private long hotKeyMinHits;
+
+    @Value("${short-url.local-cache.hot-key.max-tracked}")
+    private int hotKeyMaxTracked;
+
+    /**
+     * 批量失效广播中短码的分隔符
+     */
+    private static final String INVALIDATE_MESSAGE_SEPARATOR = "\n";
+
+    /**
+     * 一级缓存，按容量和写入时间淘汰
+     */
+    private Cache<String, String> urlCache;
+
+    /**
+     * 热点短码常驻表，不参与淘汰，每个统计窗口整体替换
+     */
+    private volatile Map<String, String> hotEntries = Collections.emptyMap();
+
+    /**
+     * 当前统计窗口的访问计数，窗口结束时整体替换
+     */
+    private volatile ConcurrentHashMap<String, LongAdder> accessCounts = new ConcurrentHashMap<>();
+
+    /**
+     * 失效版本号，每收到一次失效（本地或广播）加一
+     */
+    private long invalidateVersion;
+
+    private final Object invalidateLock = new Object();
+
+    @PostConstruct
+    public void init() {
+        urlCache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .build();
+
+        listenerContainer.addMessageListener(this, new ChannelTopic(invalidateChannel));
+        log.info("短链接本地缓存已初始化: maximumSize={}, expireSeconds={}, hotKeyTopN={}, channel={}",
+                maximumSize, expireSeconds, hotKeyTopN, invalidateChannel);
+    }
+
+    /**
+     * 查询本地缓存（纯内存），同时为热点探测计数
+     *
+     * @return 未命中时返回null
+     */
+    public String get(String shortCode) {
+        countAccess(shortCode);
+        String longUrl = hotEntries.get(shortCode);
+        if (longUrl != null) {
+            return longUrl;
+        }
+        return urlCache.getIfPresent(shortCode);
+    }
+
+    /**
+     * 当前失效版本号，回源前获取，回写时传给 {@link #put}
+     */
+    public long currentVersion() {
+        synchronized (invalidateLock) {
+            return invalidateVersion;
+        }
+    }
+
+    /**
+     * 回源后写入本地缓存
+     * 回源期间有失效通知时放弃写入，下次访问重新回源
+     *
+     * @param version 回源前获取的失效版本号
+     */
+    public void put(String shortCode, String longUrl, long version) {
+        synchronized (invalidateLock) {
+            if (invalidateVersion == version) {
+                urlCache.put(shortCode, longUrl);
+            }
+        }
+    }
+
+    /**
+     * 删除本地缓存并广播给所有实例
+     */
+    public void invalidate(String shortCode) {
+        evictLocally(shortCode);
+        redisTemplate.convertAndSend(invalidateChannel, shortCode);
+    }
+
+    /**
+     * 批量删除本地缓存，合并为一条广播（过期清理）
+     */
+    public void invalidateAll(Collection<String> shortCodes) {
+        if (shortCodes.isEmpty()) {
+            return;
+        }
+        for (String shortCode : shortCodes) {
+            evictLocally(shortCode);
+        }
+        redisTemplate.convertAndSend(invalidateChannel, String.join(INVALIDATE_MESSAGE_SEPARATOR, shortCodes));
+    }
+
+    /**
+     * 热点探测：统计上一个窗口的访问量，刷新热点常驻表
+     */
+    @Scheduled(fixedDelayString = "${short-url.local-cache.hot-key.window-millis}")
+    public void refreshHotKeys() {
+        ConcurrentHashMap<String, LongAdder> counts = accessCounts;
+        accessCounts = new ConcurrentHashMap<>();
+
+        List<String> hotCodes = topN(counts);
+        if (hotCodes.isEmpty() && hotEntries.isEmpty()) {
+            return;
+        }
+
+        long version = currentVersion();
+        Map<String, String> refreshed = new HashMap<>(hotCodes.size() * 2);
+        if (!hotCodes.isEmpty()) {
+            // 一次MGET校验所有热点短码，已删除、已过期或空值缓存的短码不进入常驻表
+            List<String> keys = new ArrayList<>(hotCodes.size());
+            for (String code : hotCodes) {
+                keys.add(cachePrefix + code);
+            }
+            List<String> values = redisTemplate.opsForValue().multiGet(keys);
+            if (values == null) {
+                return;
+            }
+            for (int i = 0; i < hotCodes.size(); i++) {
+                String longUrl = values.get(i);
+                if (longUrl != null && !longUrl.isEmpty()) {
+                    refreshed.put(hotCodes.get(i), longUrl);
+                }
+            }
+        }
+
+        synchronized (invalidateLock) {
+            if (invalidateVersion != version) {
+                // 校验期间有短码失效，失效通知已从当前常驻表删除，本轮不替换，避免写回旧值
+                log.debug("热点刷新期间收到失效通知，本轮跳过");
+                return;
+            }
+            hotEntries = Collections.unmodifiableMap(refreshed);
+        }
+        if (!refreshed.isEmpty()) {
+            log.debug("热点短码已刷新: count={}, codes={}", refreshed.size(), refreshed.keySet());
+        }
+    }
+
+    /**
+     * 接收失效广播
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        for (String shortCode : body.split(INVALIDATE_MESSAGE_SEPARATOR)) {
+            evictLocally(shortCode);
+        }
+        log.debug("收到短链接失效广播: shortCodes={}", body);
+    }
+
+    private void evictLocally(String shortCode) {
+        synchronized (invalidateLock) {
+            invalidateVersion++;
+            urlCache.invalidate(shortCode);
+            if (hotEntries.containsKey(shortCode)) {
+                Map<String, String> remaining = new HashMap<>(hotEntries);
+                remaining.remove(shortCode);
+                hotEntries = Collections.unmodifiableMap(remaining);
+            }
+        }
+    }
+
+    private void countAccess(String shortCode) {
+        ConcurrentHashMap<String, LongAdder> counts = accessCounts;
+        LongAdder counter = counts.get(shortCode);
+        if (counter == null) {
+            if (counts.size() >= hotKeyMaxTracked) {
+                return;
+            }
+            counter = counts.computeIfAbsent(shortCode, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * 取访问量Top-N且不低于阈值的短码（小顶堆）
+     */
+    private List<String> topN(Map<String, LongAdder> counts) {
+        PriorityQueue<Map.Entry<String, Long>> heap =
+                new PriorityQueue<>(hotKeyTopN + 1, Map.Entry.comparingByValue());
+        for (Map.Entry<String, LongAdder> entry : counts.entrySet()) {
+            long hits = entry.getValue().sum();
+            if (hits < hotKeyMinHits) {
+                continue;
+            }
+            heap.offer(Map.entry(entry.getKey(), hits));
+            if (heap.size() > hotKeyTopN) {
+                heap.poll();
+            }
+        }
+        List<String> codes = new ArrayList<>(heap.size());
+        for (Map.Entry<String, Long> entry : heap) {
+            codes.add(entry.getKey());
+        }
+        return codes;
+    }
+}
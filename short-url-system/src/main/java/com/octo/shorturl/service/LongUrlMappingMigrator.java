@@ -0,0 +1,108 @@
+package com.octo.shorturl.service;
+
+import com.octo.shorturl.entity.ShortUrl;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 长链接映射表回填
+ *
+ * 面试要点：去重从 t_short_url.long_url_hash 切到独立的映射表后，存量数据怎么办？
+ * - 映射表上线时是空的，不回填的话存量长链接全部去重不命中，重复提交会再生成一个短码
+ *
+ * 升级流程（无需手工执行SQL）：
+ * 1. 回填完成前，{@link ShortUrlStore} 映射未命中时按 long_url_hash 回查各分片的短链接表兜底
+ * 2. 定时任务抢锁后逐分片按ID分页读取 (long_url_hash, short_code)，按Hash分片 INSERT IGNORE 写入映射表
+ * 3. 进度按分片记录在Redis，中断后从断点继续；INSERT IGNORE 可重复执行
+ * 4. 全部完成后写入完成标记，各节点读到后关闭兜底查询
+ *
+ * 回填期间新建的短链接同时写映射，不会漏；回填读到的是已有映射的行时 INSERT IGNORE 直接跳过
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LongUrlMappingMigrator {
+
+    private final ShortUrlStore shortUrlStore;
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${short-url.sharding.mapping-migration.key-prefix}")
+    private String keyPrefix;
+
+    @Value("${short-url.sharding.mapping-migration.page-size}")
+    private int pageSize;
+
+    /**
+     * 回填锁过期时间（每处理完一页续期）
+     */
+    private static final long LOCK_EXPIRE_MINUTES = 10;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 定时检查并执行回填（每分钟），完成后只剩一次Redis读取
+     */
+    @Scheduled(initialDelay = 10, fixedDelay = 60, timeUnit = TimeUnit.SECONDS)
+    public void migrate() {
+        if (!shortUrlStore.isLegacyLookupEnabled()) {
+            return;
+        }
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(keyPrefix + "done"))) {
+            shortUrlStore.disableLegacyLookup();
+            return;
+        }
+
+        String lockKey = keyPrefix + "lock";
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(lockKey, nodeId,
+                LOCK_EXPIRE_MINUTES, TimeUnit.MINUTES);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        try {
+            for (int shard = 0; shard < shortUrlStore.getShardCount(); shard++) {
+                migrateShard(shard, lockKey);
+            }
+            redisTemplate.opsForValue().set(keyPrefix + "done", "1");
+            shortUrlStore.disableLegacyLookup();
+        } catch (Exception e) {
+            log.error("长链接映射表回填失败，下次从断点继续", e);
+        } finally {
+            if (nodeId.equals(redisTemplate.opsForValue().get(lockKey))) {
+                redisTemplate.delete(lockKey);
+            }
+        }
+    }
+
+    /**
+     * 回填一个分片：从上次进度按ID分页，每页写入映射后记录进度并续期锁
+     */
+    private void migrateShard(int shard, String lockKey) {
+        String progressKey = keyPrefix + "progress:" + shard;
+        String progress = redisTemplate.opsForValue().get(progressKey);
+        long lastId = progress != null ? Long.parseLong(progress) : 0L;
+        long migrated = 0;
+        while (true) {
+            List<ShortUrl> page = shortUrlStore.findHashesAfterId(shard, lastId, pageSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            shortUrlStore.backfillMappings(page);
+            lastId = page.get(page.size() - 1).getId();
+            migrated += page.size();
+            redisTemplate.opsForValue().set(progressKey, String.valueOf(lastId));
+            redisTemplate.expire(lockKey, LOCK_EXPIRE_MINUTES, TimeUnit.MINUTES);
+            if (page.size() < pageSize) {
+                break;
+            }
+        }
+        log.info("长链接映射表回填: shard={}, rows={}, lastId={}", shard, migrated, lastId);
+    }
+}
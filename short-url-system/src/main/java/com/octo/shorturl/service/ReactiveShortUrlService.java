@@ -0,0 +1,64 @@
+package com.octo.shorturl.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 短链接响应式查询服务（供独立重定向服务使用）
+ *
+ * 查询顺序与 {@link ShortUrlService#getLongUrl} 一致：
+ * 本地缓存 → 布隆过滤器 → Redis → 数据库
+ * - 本地缓存、布隆过滤器本地副本为纯内存操作，直接在事件循环线程执行
+ * - Redis使用响应式客户端，等待响应期间不占用线程
+ * - 数据库回源是阻塞调用，切换到弹性线程池执行，复用 {@link ShortUrlService#loadLongUrl} 的空值缓存和回写逻辑
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "short-url.redirect-server", name = "enabled", havingValue = "true")
+public class ReactiveShortUrlService {
+
+    private final ShortUrlService shortUrlService;
+    private final BloomFilterService bloomFilterService;
+    private final LocalUrlCacheService localCache;
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate;
+
+    /**
+     * 获取长链接
+     *
+     * @return 短链接不存在或已过期时返回空Mono
+     */
+    public Mono<String> getLongUrl(String shortCode) {
+        // 1. 本地缓存
+        String cached = localCache.get(shortCode);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        long version = localCache.currentVersion();
+
+        // 2. 布隆过滤器判断
+        return bloomFilterService.mightContainReactive(shortCode)
+                .flatMap(exists -> exists ? lookup(shortCode, version) : Mono.empty());
+    }
+
+    private Mono<String> lookup(String shortCode, long version) {
+        // 3. 查询Redis缓存，空字符串为空值缓存
+        Mono<String> fromRedis = reactiveRedisTemplate.opsForValue()
+                .get(shortUrlService.getCacheKey(shortCode))
+                .doOnNext(longUrl -> {
+                    if (!longUrl.isEmpty()) {
+                        localCache.put(shortCode, longUrl, version);
+                    }
+                });
+
+        // 4. 缓存未命中，查询数据库
+        Mono<String> fromDatabase = Mono.fromCallable(() -> shortUrlService.loadLongUrl(shortCode, version))
+                .subscribeOn(Schedulers.boundedElastic());
+
+        return fromRedis.switchIfEmpty(fromDatabase)
+                .filter(longUrl -> !longUrl.isEmpty());
+    }
+}
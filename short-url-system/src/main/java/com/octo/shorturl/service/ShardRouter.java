@@ -0,0 +1,83 @@
+package com.octo.shorturl.service;
+
+import com.octo.shorturl.config.ShardRoutingDataSource;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * 分片路由
+ *
+ * 面试要点：几十亿条短链接，单表放不下怎么办？
+ *
+ * 1. 按短码分片
+ *    - 短码是号段ID的62进制，解码即得ID，shard = ID % shard-count
+ *    - 号段ID连续递增，取模后各分片数据量均匀
+ *    - 重定向只带短码，解码后直接定位分片，不需要全局索引
+ *
+ * 2. 长链接去重走独立映射表
+ *    - 原先 t_short_url 上的 long_url_hash 二级索引随数据量膨胀，放不进Buffer Pool后每次去重都是随机磁盘IO
+ *    - t_long_url_mapping（长链接Hash → 短码）按Hash分片，只有两列、按Hash聚簇，去重是一次主键查找
+ *    - 查到短码后再按短码到对应分片取短链接
+ *
+ * 3. 号段表、访问日志、统计表不分片，留在默认库
+ */
+@Component
+@RequiredArgsConstructor
+public class ShardRouter {
+
+    private final ShortCodeGenerator codeGenerator;
+
+    @Value("${short-url.sharding.shard-count}")
+    private int shardCount;
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * 短码所在分片
+     */
+    public int shardOfCode(String shortCode) {
+        return (int) Math.floorMod(codeGenerator.decode(shortCode), (long) shardCount);
+    }
+
+    /**
+     * 长链接映射所在分片（取Hash前32位）
+     */
+    public int shardOfHash(String longUrlHash) {
+        return (int) (Long.parseLong(longUrlHash.substring(0, 8), 16) % shardCount);
+    }
+
+    /**
+     * 在指定分片上执行数据库操作
+     */
+    public <T> T execute(int shard, Supplier<T> action) {
+        Integer previous = ShardRoutingDataSource.currentShard();
+        ShardRoutingDataSource.setCurrentShard(shard);
+        try {
+            return action.get();
+        } finally {
+            ShardRoutingDataSource.setCurrentShard(previous);
+        }
+    }
+
+    /**
+     * 按分片分组（分片序号有序）
+     */
+    public <T> Map<Integer, List<T>> groupByShard(Collection<T> items, ToIntFunction<T> shardOf) {
+        Map<Integer, List<T>> groups = new TreeMap<>();
+        for (T item : items) {
+            groups.computeIfAbsent(shardOf.applyAsInt(item), k -> new ArrayList<>()).add(item);
+        }
+        return groups;
+    }
+}
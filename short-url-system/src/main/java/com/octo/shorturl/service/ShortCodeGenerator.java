@@ -3,12 +3,20 @@ package com.octo.shorturl.service;
 import com.octo.shorturl.entity.IdSegment;
 import com.octo.shorturl.mapper.IdSegmentMapper;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 短码生成器
@@ -41,6 +49,14 @@ import java.util.concurrent.atomic.AtomicLong;
  * - 每次取一个号段（如1000个ID）到内存
  * - 内存中自增分配，用完再取下一段
  * - 优点：减少数据库访问，高性能
+ *
+ * 双Buffer优化（参考美团Leaf）：
+ * - 问题：号段用完时在请求线程上同步查库更新，所有创建请求在号段切换处排队等待，p99出现尖刺
+ * - 预加载：当前号段消耗到 preload-ratio 时，后台线程异步加载下一个号段
+ * - 无锁分配：号段内ID通过CAS自增分配，不加锁；只有号段用完切换时才进入同步块
+ * - 兜底：切换时下一号段仍未就绪（加载失败或消耗过快）才在请求线程上等待/同步加载
+ * - 动态步长：号段实际持续时间短于 target-duration 时步长翻倍，超过2倍时减半，
+ *   步长不低于号段表配置的 step，不高于 max-step
  */
 @Slf4j
 @Service
@@ -55,29 +71,48 @@ public class ShortCodeGenerator {
     @Value("${short-url.charset}")
     private String charset;
 
+    @Value("${short-url.segment.preload-ratio}")
+    private double preloadRatio;
+
+    @Value("${short-url.segment.target-duration-seconds}")
+    private long targetDurationSeconds;
+
+    @Value("${short-url.segment.max-step}")
+    private int maxStep;
+
     private static final String BIZ_TAG = "short_url";
 
     /**
-     * 当前号段的起始ID
+     * 当前号段
      */
-    private volatile long segmentStart = 0;
+    private volatile Segment current;
 
     /**
-     * 当前号段的结束ID
+     * 预加载中（或已加载完成）的下一个号段，切换后置空
      */
-    private volatile long segmentEnd = 0;
+    private final AtomicReference<CompletableFuture<Segment>> preloading = new AtomicReference<>();
 
     /**
-     * 当前ID（原子操作）
+     * 号段预加载线程
      */
-    private final AtomicLong currentId = new AtomicLong(0);
+    private ExecutorService segmentLoader;
 
     /**
      * 初始化：加载第一个号段
      */
     @PostConstruct
     public void init() {
-        loadNextSegment();
+        segmentLoader = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "short-code-segment-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        current = loadSegment(0);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        segmentLoader.shutdownNow();
     }
 
     /**
@@ -92,25 +127,121 @@ public class ShortCodeGenerator {
         return encode(id);
     }
 
+    /**
+     * 批量生成短码
+     * 一次CAS从当前号段预留一段连续ID，当前号段剩余不足时切换号段继续预留
+     *
+     * @param count 数量
+     * @return 按ID递增排列的短码
+     */
+    public List<String> generateBatch(int count) {
+        List<String> codes = new ArrayList<>(count);
+        while (codes.size() < count) {
+            Segment segment = current;
+            int wanted = count - codes.size();
+            long start = segment.value.getAndAdd(wanted);
+            if (start > segment.max) {
+                switchSegment(segment);
+                continue;
+            }
+            long end = Math.min(start + wanted - 1, segment.max);
+            if (end >= segment.preloadAt && preloading.get() == null) {
+                preload(segment);
+            }
+            for (long id = start; id <= end; id++) {
+                codes.add(encode(id));
+            }
+        }
+        return codes;
+    }
+
     /**
      * 获取下一个ID
      */
-    private synchronized long nextId() {
-        long id = currentId.incrementAndGet();
-        
-        // 当前号段用完，加载下一段
-        if (id > segmentEnd) {
-            loadNextSegment();
-            id = currentId.incrementAndGet();
+    private long nextId() {
+        while (true) {
+            Segment segment = current;
+            long id = segment.value.getAndIncrement();
+            if (id <= segment.max) {
+                if (id >= segment.preloadAt && preloading.get() == null) {
+                    preload(segment);
+                }
+                return id;
+            }
+            // 当前号段用完，切换到下一段后重试
+            switchSegment(segment);
         }
-        
-        return id;
+    }
+
+    /**
+     * 异步预加载下一个号段，同一时刻只有一个加载任务
+     */
+    private void preload(Segment segment) {
+        CompletableFuture<Segment> future = new CompletableFuture<>();
+        if (segment != current || !preloading.compareAndSet(null, future)) {
+            return;
+        }
+        int step = nextStep(segment);
+        segmentLoader.execute(() -> {
+            try {
+                future.complete(loadSegment(step));
+            } catch (Throwable e) {
+                log.error("预加载号段失败，号段用完时同步加载", e);
+                future.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * 切换号段，只有号段用完时才进入
+     */
+    private synchronized void switchSegment(Segment exhausted) {
+        if (current != exhausted) {
+            // 其他线程已完成切换
+            return;
+        }
+
+        Segment next = null;
+        CompletableFuture<Segment> future = preloading.get();
+        if (future != null) {
+            try {
+                next = future.get();
+            } catch (ExecutionException e) {
+                log.warn("预加载号段失败，同步加载: {}", e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待号段加载被中断", e);
+            }
+        }
+        if (next == null) {
+            next = loadSegment(nextStep(exhausted));
+        }
+
+        current = next;
+        preloading.set(null);
+    }
+
+    /**
+     * 根据当前号段的实际消耗速度计算下一个号段的步长，0表示使用号段表配置的步长
+     */
+    private int nextStep(Segment segment) {
+        long durationMillis = System.currentTimeMillis() - segment.loadTime;
+        long targetMillis = targetDurationSeconds * 1000;
+        if (durationMillis < targetMillis) {
+            return (int) Math.min((long) segment.step * 2, maxStep);
+        }
+        if (durationMillis > targetMillis * 2) {
+            return segment.step / 2;
+        }
+        return segment.step;
     }
 
     /**
      * 加载下一个号段
+     *
+     * @param step 期望步长，低于号段表配置的步长时使用配置值
      */
-    private void loadNextSegment() {
+    private Segment loadSegment(int step) {
         int retryCount = 0;
         while (retryCount < 3) {
             IdSegment segment = segmentMapper.findByBizTag(BIZ_TAG);
@@ -119,15 +250,14 @@ public class ShortCodeGenerator {
             }
 
             // 乐观锁更新
-            int updated = segmentMapper.updateMaxId(BIZ_TAG, segment.getVersion());
+            int actualStep = Math.max(step, segment.getStep());
+            int updated = segmentMapper.updateMaxIdByStep(BIZ_TAG, actualStep, segment.getVersion());
             if (updated > 0) {
-                // 更新成功，设置新号段
-                segmentStart = segment.getMaxId() + 1;
-                segmentEnd = segment.getMaxId() + segment.getStep();
-                currentId.set(segmentStart - 1);
-                
-                log.info("加载新号段: start={}, end={}", segmentStart, segmentEnd);
-                return;
+                // 更新成功，返回新号段
+                long start = segment.getMaxId() + 1;
+                long end = segment.getMaxId() + actualStep;
+                log.info("加载新号段: start={}, end={}, step={}", start, end, actualStep);
+                return new Segment(start, end, actualStep, start + (long) (actualStep * preloadRatio));
             }
             
             retryCount++;
@@ -137,6 +267,25 @@ public class ShortCodeGenerator {
         throw new RuntimeException("获取号段失败，重试次数超限");
     }
 
+    /**
+     * 号段：[value, max] 区间内CAS自增分配
+     */
+    private static final class Segment {
+
+        private final AtomicLong value;
+        private final long max;
+        private final int step;
+        private final long preloadAt;
+        private final long loadTime = System.currentTimeMillis();
+
+        private Segment(long start, long max, int step, long preloadAt) {
+            this.value = new AtomicLong(start);
+            this.max = max;
+            this.step = step;
+            this.preloadAt = preloadAt;
+        }
+    }
+
     /**
      * 将ID转换为62进制短码
      * 
@@ -163,7 +312,31 @@ public class ShortCodeGenerator {
     }
 
     /**
-     * 将短码解码为ID（可选，用于调试）
+     * 是否为发号器生成格式的短码（长度不小于配置长度且只包含字符集中的字符）
+     */
+    public boolean isWellFormed(String shortCode) {
+        if (shortCode == null || shortCode.length() < codeLength) {
+            return false;
+        }
+        for (int i = 0; i < shortCode.length(); i++) {
+            if (charset.indexOf(shortCode.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 号段表中已分配出去的ID上限（所有节点），再加一个最大步长作为查询之后新分配号段的余量
+     */
+    public long getAllocatedIdBound() {
+        IdSegment segment = segmentMapper.findByBizTag(BIZ_TAG);
+        long maxId = segment != null && segment.getMaxId() != null ? segment.getMaxId() : 0;
+        return maxId + maxStep;
+    }
+
+    /**
+     * 将短码解码为ID（用于分片路由）
      */
     public long decode(String shortCode) {
         long id = 0;
@@ -1,18 +1,29 @@
 package com.octo.shorturl.service;
 
 import com.google.common.hash.Hashing;
+import com.octo.shorturl.dto.BatchCreateResult;
+import com.octo.shorturl.dto.CreateShortUrlRequest;
 import com.octo.shorturl.entity.ShortUrl;
-import com.octo.shorturl.mapper.ShortUrlMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * 短链接服务
@@ -23,25 +34,27 @@ import java.util.concurrent.TimeUnit;
  * 1. 计算长链接Hash，检查是否已存在（去重）
  * 2. 生成短码（发号器 + 62进制）
  * 3. 布隆过滤器添加短码
- * 4. 存储到数据库
+ * 4. 存储到数据库（短链接按短码分片，长链接映射按Hash分片，见 {@link ShardRouter}）
  * 5. 缓存到Redis
  * 
  * 访问短链接：
- * 1. 布隆过滤器快速判断（防止缓存穿透）
- * 2. 查询Redis缓存
- * 3. 缓存未命中，查询数据库
- * 4. 回写缓存
- * 5. 302重定向到原始URL
+ * 1. 查询本地缓存（热点短码常驻内存，命中时无网络往返）
+ * 2. 布隆过滤器快速判断（防止缓存穿透）
+ * 3. 查询Redis缓存
+ * 4. 缓存未命中，查询数据库
+ * 5. 回写缓存
+ * 6. 302重定向到原始URL
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ShortUrlService {
 
-    private final ShortUrlMapper shortUrlMapper;
+    private final ShortUrlStore shortUrlStore;
     private final ShortCodeGenerator codeGenerator;
     private final BloomFilterService bloomFilter;
     private final StringRedisTemplate redisTemplate;
+    private final LocalUrlCacheService localCache;
 
     @Value("${short-url.domain}")
     private String domain;
@@ -52,6 +65,9 @@ public class ShortUrlService {
     @Value("${short-url.cache.expire-days}")
     private int cacheExpireDays;
 
+    @Value("${short-url.batch.chunk-size}")
+    private int batchChunkSize;
+
     /**
      * 创建短链接
      * 
@@ -60,11 +76,10 @@ public class ShortUrlService {
      * @param expireTime 过期时间（可选）
      * @return 完整短链接
      */
-    @Transactional(rollbackFor = Exception.class)
     public String createShortUrl(String longUrl, Long creatorId, LocalDateTime expireTime) {
         // 1. 计算长链接Hash，检查是否已存在
         String urlHash = hashUrl(longUrl);
-        ShortUrl existing = shortUrlMapper.findByLongUrlHash(urlHash);
+        ShortUrl existing = shortUrlStore.findByLongUrlHash(urlHash);
         if (existing != null) {
             log.info("长链接已存在短码: longUrl={}, shortCode={}", longUrl, existing.getShortCode());
             return existing.getFullShortUrl();
@@ -78,6 +93,7 @@ public class ShortUrlService {
 
         // 4. 存储到数据库
         ShortUrl shortUrl = new ShortUrl();
+        shortUrl.setId(codeGenerator.decode(shortCode));
         shortUrl.setShortCode(shortCode);
         shortUrl.setLongUrl(longUrl);
         shortUrl.setLongUrlHash(urlHash);
@@ -85,17 +101,109 @@ public class ShortUrlService {
         shortUrl.setCreatorId(creatorId);
         shortUrl.setExpireTime(expireTime);
         shortUrl.setStatus(1);
-        shortUrlMapper.insert(shortUrl);
+        shortUrlStore.insert(shortUrl);
 
         // 5. 缓存到Redis
-        String cacheKey = getCacheKey(shortCode);
-        redisTemplate.opsForValue().set(cacheKey, longUrl, cacheExpireDays, TimeUnit.DAYS);
+        cacheLongUrl(shortCode, longUrl, expireTime);
 
         log.info("创建短链接成功: shortCode={}, longUrl={}", shortCode, longUrl);
 
         return shortUrl.getFullShortUrl();
     }
 
+    /**
+     * 批量创建短链接
+     *
+     * 按 batch.chunk-size 分块处理，每块：
+     * 1. 块内按长链接Hash去重，一次IN查询与数据库去重（已提交的前序块也会被查到）
+     * 2. 一次CAS预留一段连续ID生成短码
+     * 3. 布隆过滤器批量添加，数据库多行INSERT
+     * 4. Redis缓存管道写入
+     * 5. 本块结果交给 resultSink，调用方可边处理边返回
+     *
+     * @param items 待创建的短链接
+     * @param resultSink 每块处理完成后按请求顺序接收该块的结果
+     */
+    public void createShortUrls(List<CreateShortUrlRequest> items, Consumer<List<BatchCreateResult>> resultSink) {
+        for (int from = 0; from < items.size(); from += batchChunkSize) {
+            int to = Math.min(from + batchChunkSize, items.size());
+            resultSink.accept(createChunk(items, from, to));
+        }
+        log.info("批量创建短链接完成: count={}", items.size());
+    }
+
+    private List<BatchCreateResult> createChunk(List<CreateShortUrlRequest> items, int from, int to) {
+        // 1. 块内去重：同一长链接只创建一次
+        String[] hashes = new String[to - from];
+        Map<String, CreateShortUrlRequest> uniqueByHash = new LinkedHashMap<>();
+        for (int i = from; i < to; i++) {
+            CreateShortUrlRequest item = items.get(i);
+            String urlHash = hashUrl(item.getLongUrl());
+            hashes[i - from] = urlHash;
+            uniqueByHash.putIfAbsent(urlHash, item);
+        }
+
+        // 2. 与数据库去重
+        Map<String, ShortUrl> urlsByHash = new HashMap<>();
+        for (ShortUrl existing : shortUrlStore.findByLongUrlHashes(uniqueByHash.keySet())) {
+            urlsByHash.putIfAbsent(existing.getLongUrlHash(), existing);
+        }
+
+        // 3. 为新长链接批量生成短码
+        List<ShortUrl> created = new ArrayList<>();
+        uniqueByHash.forEach((urlHash, item) -> {
+            if (urlsByHash.containsKey(urlHash)) {
+                return;
+            }
+            ShortUrl shortUrl = new ShortUrl();
+            shortUrl.setLongUrl(item.getLongUrl());
+            shortUrl.setLongUrlHash(urlHash);
+            shortUrl.setDomain(domain);
+            shortUrl.setCreatorId(item.getCreatorId());
+            shortUrl.setExpireTime(item.getExpireTime());
+            shortUrl.setStatus(1);
+            created.add(shortUrl);
+        });
+
+        if (!created.isEmpty()) {
+            List<String> codes = codeGenerator.generateBatch(created.size());
+            for (int i = 0; i < created.size(); i++) {
+                created.get(i).setId(codeGenerator.decode(codes.get(i)));
+                created.get(i).setShortCode(codes.get(i));
+                urlsByHash.put(created.get(i).getLongUrlHash(), created.get(i));
+            }
+
+            // 4. 布隆过滤器批量添加，多行INSERT
+            bloomFilter.addAll(codes);
+            shortUrlStore.insertBatch(created);
+
+            // 5. 管道写入Redis缓存
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                for (ShortUrl shortUrl : created) {
+                    long ttlSeconds = getCacheSeconds(shortUrl.getExpireTime());
+                    if (ttlSeconds > 0) {
+                        conn.setEx(getCacheKey(shortUrl.getShortCode()), ttlSeconds, shortUrl.getLongUrl());
+                    }
+                }
+                return null;
+            });
+        }
+
+        // 6. 按请求顺序返回结果，块内重复的长链接只有第一次标记为新建
+        Set<String> reported = new HashSet<>();
+        Set<String> createdHashes = new HashSet<>();
+        created.forEach(shortUrl -> createdHashes.add(shortUrl.getLongUrlHash()));
+        List<BatchCreateResult> results = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            String urlHash = hashes[i - from];
+            ShortUrl shortUrl = urlsByHash.get(urlHash);
+            boolean isNew = createdHashes.contains(urlHash) && reported.add(urlHash);
+            results.add(new BatchCreateResult(i, items.get(i).getLongUrl(), shortUrl.getFullShortUrl(), isNew));
+        }
+        return results;
+    }
+
     /**
      * 获取原始链接
      * 
@@ -103,37 +211,59 @@ public class ShortUrlService {
      * @return 原始长链接
      */
     public String getLongUrl(String shortCode) {
-        // 1. 布隆过滤器快速判断（防止缓存穿透）
+        // 1. 查询本地缓存
+        String longUrl = localCache.get(shortCode);
+        if (longUrl != null) {
+            return longUrl;
+        }
+        long version = localCache.currentVersion();
+
+        // 2. 布隆过滤器快速判断（防止缓存穿透）
         if (!bloomFilter.mightContain(shortCode)) {
             log.debug("布隆过滤器判断短码不存在: {}", shortCode);
             return null;
         }
 
-        // 2. 查询Redis缓存
+        // 3. 查询Redis缓存（空字符串为防穿透的空值缓存）
         String cacheKey = getCacheKey(shortCode);
-        String longUrl = redisTemplate.opsForValue().get(cacheKey);
+        longUrl = redisTemplate.opsForValue().get(cacheKey);
         if (longUrl != null) {
+            if (longUrl.isEmpty()) {
+                return null;
+            }
+            localCache.put(shortCode, longUrl, version);
             return longUrl;
         }
 
-        // 3. 缓存未命中，查询数据库
-        ShortUrl shortUrl = shortUrlMapper.findByShortCode(shortCode);
+        // 4. 缓存未命中，查询数据库
+        return loadLongUrl(shortCode, version);
+    }
+
+    /**
+     * 缓存未命中时查询数据库并回写缓存（阻塞调用，响应式链路需切换到弹性线程池）
+     *
+     * @param version 查询本地缓存后获取的失效版本号
+     * @return 短链接不存在或已过期时返回null
+     */
+    public String loadLongUrl(String shortCode, long version) {
+        String cacheKey = getCacheKey(shortCode);
+        ShortUrl shortUrl = shortUrlStore.findByShortCode(shortCode);
         if (shortUrl == null) {
             // 布隆过滤器误判，设置空值缓存（防止穿透）
             redisTemplate.opsForValue().set(cacheKey, "", 5, TimeUnit.MINUTES);
             return null;
         }
 
-        // 4. 检查是否过期
+        // 检查是否过期
         if (shortUrl.getExpireTime() != null && 
                 shortUrl.getExpireTime().isBefore(LocalDateTime.now())) {
             log.info("短链接已过期: {}", shortCode);
             return null;
         }
 
-        // 5. 回写缓存
-        redisTemplate.opsForValue().set(cacheKey, shortUrl.getLongUrl(), 
-                cacheExpireDays, TimeUnit.DAYS);
+        // 回写缓存
+        cacheLongUrl(shortCode, shortUrl.getLongUrl(), shortUrl.getExpireTime());
+        localCache.put(shortCode, shortUrl.getLongUrl(), version);
 
         return shortUrl.getLongUrl();
     }
@@ -142,23 +272,47 @@ public class ShortUrlService {
      * 获取短链接信息
      */
     public ShortUrl getShortUrlInfo(String shortCode) {
-        return shortUrlMapper.findByShortCode(shortCode);
+        return shortUrlStore.findByShortCode(shortCode);
     }
 
     /**
      * 禁用短链接
      */
     public void disableShortUrl(String shortCode) {
-        ShortUrl shortUrl = shortUrlMapper.findByShortCode(shortCode);
+        ShortUrl shortUrl = shortUrlStore.findByShortCode(shortCode);
         if (shortUrl != null) {
             shortUrl.setStatus(0);
-            shortUrlMapper.updateById(shortUrl);
-            // 删除缓存
+            shortUrlStore.updateById(shortUrl);
+            // 删除缓存，并广播各实例删除本地缓存
             redisTemplate.delete(getCacheKey(shortCode));
+            localCache.invalidate(shortCode);
             log.info("短链接已禁用: {}", shortCode);
         }
     }
 
+    /**
+     * 写入Redis缓存
+     * 有过期时间的短链接，缓存时长不超过剩余有效期，过期后缓存自然失效，热点常驻表在下个窗口校验时移出
+     */
+    private void cacheLongUrl(String shortCode, String longUrl, LocalDateTime expireTime) {
+        long ttlSeconds = getCacheSeconds(expireTime);
+        if (ttlSeconds > 0) {
+            redisTemplate.opsForValue().set(getCacheKey(shortCode), longUrl, ttlSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 缓存时长（秒），已过期时返回0
+     */
+    private long getCacheSeconds(LocalDateTime expireTime) {
+        long ttlSeconds = TimeUnit.DAYS.toSeconds(cacheExpireDays);
+        if (expireTime != null) {
+            long remaining = Duration.between(LocalDateTime.now(), expireTime).getSeconds();
+            ttlSeconds = Math.min(ttlSeconds, Math.max(remaining, 0));
+        }
+        return ttlSeconds;
+    }
+
     /**
      * 计算URL的Hash值
      */
@@ -171,7 +325,7 @@ public class ShortUrlService {
     /**
      * 获取缓存Key
      */
-    private String getCacheKey(String shortCode) {
+    public String getCacheKey(String shortCode) {
         return cachePrefix + shortCode;
     }
 }
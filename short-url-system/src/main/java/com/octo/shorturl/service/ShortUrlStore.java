@@ -0,0 +1,236 @@
+package com.octo.shorturl.service;
+
+import com.octo.shorturl.entity.LongUrlMapping;
+import com.octo.shorturl.entity.ShortUrl;
+import com.octo.shorturl.mapper.LongUrlMappingMapper;
+import com.octo.shorturl.mapper.ShortUrlMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 短链接分片存储
+ *
+ * - t_short_url 按短码路由，t_long_url_mapping 按长链接Hash路由，规则见 {@link ShardRouter}
+ * - 批量操作先按分片分组，每个分片一条SQL
+ * - 写入顺序：先写短链接，再写映射；映射写入失败只会让该长链接下次去重不命中、多生成一个短码，不会产生无法访问的短码
+ * - 升级兼容：映射表上线前创建的短链接没有映射，由 {@link LongUrlMappingMigrator} 回填；
+ *   回填完成前映射未命中时，再按 t_short_url.long_url_hash 逐分片查询兜底
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ShortUrlStore {
+
+    private final ShortUrlMapper shortUrlMapper;
+    private final LongUrlMappingMapper mappingMapper;
+    private final ShardRouter shardRouter;
+
+    /**
+     * 映射表回填完成前为true，去重未命中映射时回查短链接表
+     */
+    private volatile boolean legacyLookup = true;
+
+    /**
+     * 根据短码查询（仅正常状态）
+     */
+    public ShortUrl findByShortCode(String shortCode) {
+        return shardRouter.execute(shardRouter.shardOfCode(shortCode),
+                () -> shortUrlMapper.findByShortCode(shortCode));
+    }
+
+    /**
+     * 根据短码批量查询（仅正常状态）
+     */
+    public List<ShortUrl> findByShortCodes(Collection<String> shortCodes) {
+        List<ShortUrl> result = new ArrayList<>(shortCodes.size());
+        shardRouter.groupByShard(shortCodes, shardRouter::shardOfCode).forEach((shard, codes) ->
+                result.addAll(shardRouter.execute(shard, () -> shortUrlMapper.findByShortCodes(codes))));
+        return result;
+    }
+
+    /**
+     * 根据长链接Hash查询（去重）：映射分片查短码，再到短码分片取短链接
+     */
+    public ShortUrl findByLongUrlHash(String hash) {
+        List<String> codes = shardRouter.execute(shardRouter.shardOfHash(hash),
+                () -> mappingMapper.findShortCodes(hash));
+        for (String code : codes) {
+            ShortUrl shortUrl = findByShortCode(code);
+            if (shortUrl != null) {
+                return shortUrl;
+            }
+        }
+        if (legacyLookup) {
+            for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+                ShortUrl shortUrl = shardRouter.execute(shard, () -> shortUrlMapper.findByLongUrlHash(hash));
+                if (shortUrl != null) {
+                    return shortUrl;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 根据长链接Hash批量查询（批量创建去重）
+     */
+    public List<ShortUrl> findByLongUrlHashes(Collection<String> hashes) {
+        List<String> codes = new ArrayList<>();
+        shardRouter.groupByShard(hashes, shardRouter::shardOfHash).forEach((shard, group) -> {
+            for (LongUrlMapping mapping : shardRouter.execute(shard, () -> mappingMapper.findByHashes(group))) {
+                codes.add(mapping.getShortCode());
+            }
+        });
+        List<ShortUrl> found = codes.isEmpty() ? new ArrayList<>() : findByShortCodes(codes);
+        if (legacyLookup) {
+            Set<String> missing = new HashSet<>(hashes);
+            for (ShortUrl shortUrl : found) {
+                missing.remove(shortUrl.getLongUrlHash());
+            }
+            for (int shard = 0; shard < shardRouter.getShardCount() && !missing.isEmpty(); shard++) {
+                found.addAll(shardRouter.execute(shard, () -> shortUrlMapper.findByLongUrlHashes(missing)));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 映射表回填完成，去重不再回查短链接表
+     */
+    public void disableLegacyLookup() {
+        if (legacyLookup) {
+            legacyLookup = false;
+            log.info("长链接映射表回填已完成，去重只查映射表");
+        }
+    }
+
+    public boolean isLegacyLookupEnabled() {
+        return legacyLookup;
+    }
+
+    /**
+     * 按ID分页查询指定分片的短链接Hash（回填长链接映射表）
+     */
+    public List<ShortUrl> findHashesAfterId(int shard, long lastId, int limit) {
+        return shardRouter.execute(shard, () -> shortUrlMapper.findHashesAfterId(lastId, limit));
+    }
+
+    /**
+     * 回填长链接映射（按Hash分片分组，已存在的跳过）
+     */
+    public void backfillMappings(List<ShortUrl> shortUrls) {
+        List<LongUrlMapping> mappings = new ArrayList<>(shortUrls.size());
+        for (ShortUrl shortUrl : shortUrls) {
+            LongUrlMapping mapping = new LongUrlMapping();
+            mapping.setLongUrlHash(shortUrl.getLongUrlHash());
+            mapping.setShortCode(shortUrl.getShortCode());
+            mappings.add(mapping);
+        }
+        shardRouter.groupByShard(mappings, m -> shardRouter.shardOfHash(m.getLongUrlHash())).forEach((shard, group) ->
+                shardRouter.execute(shard, () -> mappingMapper.insertIgnoreBatch(group)));
+    }
+
+    /**
+     * 插入短链接及长链接映射（id需为短码对应的号段ID）
+     */
+    public void insert(ShortUrl shortUrl) {
+        insertBatch(Collections.singletonList(shortUrl));
+    }
+
+    /**
+     * 批量插入短链接及长链接映射（id需为短码对应的号段ID）
+     */
+    public void insertBatch(List<ShortUrl> shortUrls) {
+        shardRouter.groupByShard(shortUrls, u -> shardRouter.shardOfCode(u.getShortCode())).forEach((shard, urls) ->
+                shardRouter.execute(shard, () -> shortUrlMapper.insertBatch(urls)));
+
+        List<LongUrlMapping> mappings = new ArrayList<>(shortUrls.size());
+        for (ShortUrl shortUrl : shortUrls) {
+            LongUrlMapping mapping = new LongUrlMapping();
+            mapping.setLongUrlHash(shortUrl.getLongUrlHash());
+            mapping.setShortCode(shortUrl.getShortCode());
+            mappings.add(mapping);
+        }
+        shardRouter.groupByShard(mappings, m -> shardRouter.shardOfHash(m.getLongUrlHash())).forEach((shard, group) ->
+                shardRouter.execute(shard, () -> mappingMapper.insertBatch(group)));
+    }
+
+    /**
+     * 按ID更新
+     */
+    public void updateById(ShortUrl shortUrl) {
+        shardRouter.execute(shardRouter.shardOfCode(shortUrl.getShortCode()),
+                () -> shortUrlMapper.updateById(shortUrl));
+    }
+
+    /**
+     * 查询指定分片中过期时间落在 [from, to) 内、尚未标记的短链接
+     */
+    public List<ShortUrl> findExpired(int shard, LocalDateTime from, LocalDateTime to, int limit) {
+        return shardRouter.execute(shard, () -> shortUrlMapper.findExpired(from, to, limit));
+    }
+
+    /**
+     * 批量标记已过期，并删除对应的长链接映射
+     *
+     * @param shortUrls 同一分片中的短链接（需包含id、shortCode、longUrlHash）
+     * @return 标记成功的条数
+     */
+    public int markExpired(int shard, List<ShortUrl> shortUrls) {
+        List<Long> ids = new ArrayList<>(shortUrls.size());
+        List<LongUrlMapping> mappings = new ArrayList<>(shortUrls.size());
+        for (ShortUrl shortUrl : shortUrls) {
+            ids.add(shortUrl.getId());
+            LongUrlMapping mapping = new LongUrlMapping();
+            mapping.setLongUrlHash(shortUrl.getLongUrlHash());
+            mapping.setShortCode(shortUrl.getShortCode());
+            mappings.add(mapping);
+        }
+        int marked = shardRouter.execute(shard, () -> shortUrlMapper.markExpired(ids));
+        shardRouter.groupByShard(mappings, m -> shardRouter.shardOfHash(m.getLongUrlHash())).forEach((mappingShard, group) ->
+                shardRouter.execute(mappingShard, () -> mappingMapper.deleteBatch(group)));
+        return marked;
+    }
+
+    /**
+     * 按ID分页查询指定分片的短码（重建布隆过滤器副本）
+     */
+    public List<ShortUrl> findCodesAfterId(int shard, long lastId, int limit) {
+        return shardRouter.execute(shard, () -> shortUrlMapper.findCodesAfterId(lastId, limit));
+    }
+
+    /**
+     * 查询所有分片中指定时间之后创建的短码（布隆过滤器副本追平）
+     */
+    public List<String> findCodesCreatedSince(LocalDateTime since) {
+        List<String> codes = new ArrayList<>();
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            codes.addAll(shardRouter.execute(shard, () -> shortUrlMapper.findCodesCreatedSince(since)));
+        }
+        return codes;
+    }
+
+    /**
+     * 所有分片中的最大ID
+     */
+    public long findMaxId() {
+        long maxId = 0;
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            maxId = Math.max(maxId, shardRouter.execute(shard, shortUrlMapper::selectMaxId));
+        }
+        return maxId;
+    }
+
+    public int getShardCount() {
+        return shardRouter.getShardCount();
+    }
+}
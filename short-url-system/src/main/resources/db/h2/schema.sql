@@ -0,0 +1,55 @@
+-- H2默认库（h2 profile）：号段表、访问日志、统计表
+
+CREATE TABLE IF NOT EXISTS t_access_log (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    short_code VARCHAR(10) NOT NULL,
+    ip VARCHAR(50),
+    user_agent VARCHAR(500),
+    referer VARCHAR(500),
+    device_type VARCHAR(20),
+    browser VARCHAR(50),
+    os VARCHAR(50),
+    country VARCHAR(50),
+    province VARCHAR(50),
+    city VARCHAR(50),
+    access_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_access_log_short_code ON t_access_log (short_code);
+CREATE INDEX IF NOT EXISTS idx_access_log_access_time ON t_access_log (access_time);
+
+CREATE TABLE IF NOT EXISTS t_access_stats_daily (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    short_code VARCHAR(10) NOT NULL,
+    stat_date DATE NOT NULL,
+    pv INT DEFAULT 0,
+    uv INT DEFAULT 0,
+    ip_count INT DEFAULT 0,
+    create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT idx_code_date UNIQUE (short_code, stat_date)
+);
+
+CREATE TABLE IF NOT EXISTS t_access_stats_dimension (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    short_code VARCHAR(10) NOT NULL,
+    stat_date DATE NOT NULL,
+    dimension VARCHAR(20) NOT NULL,
+    dimension_value VARCHAR(50) NOT NULL,
+    pv INT DEFAULT 0,
+    create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT idx_code_date_dim UNIQUE (short_code, stat_date, dimension, dimension_value)
+);
+
+CREATE TABLE IF NOT EXISTS t_id_segment (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    biz_tag VARCHAR(50) NOT NULL UNIQUE,
+    max_id BIGINT NOT NULL DEFAULT 0,
+    step INT NOT NULL DEFAULT 1000,
+    description VARCHAR(200),
+    update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version INT DEFAULT 0
+);
+
+MERGE INTO t_id_segment (biz_tag, max_id, step, description) KEY (biz_tag) VALUES
+('short_url', 100000, 1000, '短链接ID发号器');
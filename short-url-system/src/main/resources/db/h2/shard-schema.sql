@@ -0,0 +1,24 @@
+-- H2分片库（h2 profile）：每个分片执行一次
+
+CREATE TABLE IF NOT EXISTS t_short_url (
+    id BIGINT PRIMARY KEY,
+    short_code VARCHAR(10) NOT NULL UNIQUE,
+    long_url VARCHAR(2048) NOT NULL,
+    long_url_hash VARCHAR(64) NOT NULL,
+    domain VARCHAR(100),
+    creator_id BIGINT,
+    expire_time TIMESTAMP,
+    status TINYINT DEFAULT 1,
+    create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_short_url_creator_id ON t_short_url (creator_id);
+CREATE INDEX IF NOT EXISTS idx_short_url_create_time ON t_short_url (create_time);
+CREATE INDEX IF NOT EXISTS idx_short_url_status_expire_time ON t_short_url (status, expire_time);
+
+CREATE TABLE IF NOT EXISTS t_long_url_mapping (
+    long_url_hash VARCHAR(64) NOT NULL,
+    short_code VARCHAR(10) NOT NULL,
+    create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (long_url_hash, short_code)
+);
@@ -4,23 +4,33 @@ CREATE DATABASE IF NOT EXISTS short_url_db DEFAULT CHARACTER SET utf8mb4 COLLATE
 
 USE short_url_db;
 
--- 短链接表
+-- 短链接表（分片部署时建在各分片库，见 shard-schema.sql）
 CREATE TABLE IF NOT EXISTS t_short_url (
-    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键ID',
+    id BIGINT PRIMARY KEY COMMENT '号段ID（短码即其62进制）',
     short_code VARCHAR(10) NOT NULL UNIQUE COMMENT '短码',
     long_url VARCHAR(2048) NOT NULL COMMENT '原始长链接',
     long_url_hash VARCHAR(64) NOT NULL COMMENT '长链接Hash值',
     domain VARCHAR(100) COMMENT '短链接域名',
     creator_id BIGINT COMMENT '创建者ID',
     expire_time DATETIME COMMENT '过期时间',
-    status TINYINT DEFAULT 1 COMMENT '状态: 0-禁用 1-正常',
+    status TINYINT DEFAULT 1 COMMENT '状态: 0-禁用 1-正常 2-已过期',
     create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
     update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-    INDEX idx_long_url_hash (long_url_hash) COMMENT '用于查找已存在的短链接',
     INDEX idx_creator_id (creator_id),
-    INDEX idx_create_time (create_time)
+    INDEX idx_create_time (create_time),
+    INDEX idx_status_expire_time (status, expire_time) COMMENT '过期清理按过期时间分桶扫描'
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='短链接表';
 
+-- 长链接映射表（去重，按长链接Hash聚簇；分片部署时建在各分片库）
+-- 从旧版本升级：存量数据由 LongUrlMappingMigrator 启动后自动回填，完成前去重回查 t_short_url.long_url_hash，
+-- 因此旧库的 idx_long_url_hash 索引需保留到回填完成（Redis 中 short:mapping:migration:done 存在）后再删除
+CREATE TABLE IF NOT EXISTS t_long_url_mapping (
+    long_url_hash VARCHAR(64) NOT NULL COMMENT '长链接Hash值',
+    short_code VARCHAR(10) NOT NULL COMMENT '短码',
+    create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (long_url_hash, short_code)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='长链接映射表';
+
 -- 访问统计表
 CREATE TABLE IF NOT EXISTS t_access_log (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
@@ -52,6 +62,19 @@ CREATE TABLE IF NOT EXISTS t_access_stats_daily (
     UNIQUE INDEX idx_code_date (short_code, stat_date)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='每日访问统计表';
 
+-- 访问统计维度汇总表（按天，设备类型/浏览器分布）
+CREATE TABLE IF NOT EXISTS t_access_stats_dimension (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    short_code VARCHAR(10) NOT NULL COMMENT '短码',
+    stat_date DATE NOT NULL COMMENT '统计日期',
+    dimension VARCHAR(20) NOT NULL COMMENT '维度: device_type/browser',
+    dimension_value VARCHAR(50) NOT NULL COMMENT '维度值',
+    pv INT DEFAULT 0 COMMENT '页面访问量',
+    create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+    update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE INDEX idx_code_date_dim (short_code, stat_date, dimension, dimension_value)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='每日维度访问统计表';
+
 -- 号段表（发号器方案）
 CREATE TABLE IF NOT EXISTS t_id_segment (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
@@ -0,0 +1,27 @@
+-- 短链接分片库初始化脚本
+-- 每个分片库执行一次，库名与 short-url.sharding.url-template 对应（如 short_url_shard_0、short_url_shard_1 ...）
+
+-- 短链接表（按短码分片：号段ID % 分片数）
+CREATE TABLE IF NOT EXISTS t_short_url (
+    id BIGINT PRIMARY KEY COMMENT '号段ID（短码即其62进制）',
+    short_code VARCHAR(10) NOT NULL UNIQUE COMMENT '短码',
+    long_url VARCHAR(2048) NOT NULL COMMENT '原始长链接',
+    long_url_hash VARCHAR(64) NOT NULL COMMENT '长链接Hash值',
+    domain VARCHAR(100) COMMENT '短链接域名',
+    creator_id BIGINT COMMENT '创建者ID',
+    expire_time DATETIME COMMENT '过期时间',
+    status TINYINT DEFAULT 1 COMMENT '状态: 0-禁用 1-正常 2-已过期',
+    create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+    update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    INDEX idx_creator_id (creator_id),
+    INDEX idx_create_time (create_time),
+    INDEX idx_status_expire_time (status, expire_time) COMMENT '过期清理按过期时间分桶扫描'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='短链接表';
+
+-- 长链接映射表（按长链接Hash分片：Hash前32位 % 分片数）
+CREATE TABLE IF NOT EXISTS t_long_url_mapping (
+    long_url_hash VARCHAR(64) NOT NULL COMMENT '长链接Hash值',
+    short_code VARCHAR(10) NOT NULL COMMENT '短码',
+    create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (long_url_hash, short_code)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='长链接映射表';